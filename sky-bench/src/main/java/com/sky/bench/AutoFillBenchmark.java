@@ -0,0 +1,101 @@
+package com.sky.bench;
+
+import com.sky.aspect.AutoFillAspect;
+import com.sky.bench.support.StandIns;
+import com.sky.constant.AutoFillConstant;
+import com.sky.context.BaseContext;
+import com.sky.entity.Dish;
+import com.sky.mapper.DishMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 公共字段自动填充的耗时
+ * 通过AutoFillAspect代理内存中的DishMapper替身调用insert/update，和直接调用替身（不填充）对比；
+ * reflection为原来每次调用都按方法名查找setter再反射赋值的做法，作为对照
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutoFillBenchmark {
+
+    private DishMapper standIn;
+
+    private DishMapper proxied;
+
+    private Dish dish;
+
+    @Setup
+    public void setup() {
+        standIn = StandIns.of(DishMapper.class).build();
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(standIn);
+        proxyFactory.addAspect(new AutoFillAspect());
+        proxied = proxyFactory.getProxy();
+
+        BaseContext.setCurrentId(1L);
+        dish = Dish.builder().name("水煮鱼").categoryId(11L).status(1).build();
+
+        //确认切面生效，否则测到的只是代理本身的开销
+        proxied.insert(dish);
+        if (dish.getCreateTime() == null || dish.getUpdateUser() == null) {
+            throw new IllegalStateException("AutoFillAspect没有织入DishMapper替身");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BaseContext.removeCurrentId();
+    }
+
+    @Benchmark
+    public Dish insertWithoutAutoFill() {
+        standIn.insert(dish);
+        return dish;
+    }
+
+    @Benchmark
+    public Dish insert() {
+        proxied.insert(dish);
+        return dish;
+    }
+
+    @Benchmark
+    public Dish update() {
+        proxied.update(dish);
+        return dish;
+    }
+
+    @Benchmark
+    public Dish reflection() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Long currentId = BaseContext.getCurrentId();
+        Method setCreateTime = dish.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+        Method setCreateUser = dish.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
+        Method setUpdateTime = dish.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+        Method setUpdateUser = dish.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
+        setCreateTime.invoke(dish, now);
+        setCreateUser.invoke(dish, currentId);
+        setUpdateTime.invoke(dish, now);
+        setUpdateUser.invoke(dish, currentId);
+        return dish;
+    }
+}
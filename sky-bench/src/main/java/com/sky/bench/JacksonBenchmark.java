@@ -0,0 +1,79 @@
+package com.sky.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.sky.bench.support.BenchData;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.vo.DishVO;
+import com.sky.vo.OrderVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JacksonObjectMapper序列化和反序列化菜品列表、订单详情的耗时
+ * 对应用户端按分类查询菜品和订单详情接口的响应体
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+    private static final TypeReference<List<DishVO>> DISH_LIST_TYPE = new TypeReference<List<DishVO>>() {};
+
+    //一个分类下的菜品数
+    @Param({"10", "50"})
+    private int dishCount;
+
+    private JacksonObjectMapper objectMapper;
+
+    private List<DishVO> dishVOList;
+
+    private byte[] dishVOListJson;
+
+    private OrderVO orderVO;
+
+    private byte[] orderVOJson;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new JacksonObjectMapper();
+        dishVOList = BenchData.dishVOList(dishCount);
+        dishVOListJson = objectMapper.writeValueAsBytes(dishVOList);
+        orderVO = BenchData.orderVO(5);
+        orderVOJson = objectMapper.writeValueAsBytes(orderVO);
+    }
+
+    @Benchmark
+    public byte[] writeDishVOList() throws Exception {
+        return objectMapper.writeValueAsBytes(dishVOList);
+    }
+
+    @Benchmark
+    public List<DishVO> readDishVOList() throws Exception {
+        return objectMapper.readValue(dishVOListJson, DISH_LIST_TYPE);
+    }
+
+    @Benchmark
+    public byte[] writeOrderVO() throws Exception {
+        return objectMapper.writeValueAsBytes(orderVO);
+    }
+
+    @Benchmark
+    public OrderVO readOrderVO() throws Exception {
+        return objectMapper.readValue(orderVOJson, OrderVO.class);
+    }
+}
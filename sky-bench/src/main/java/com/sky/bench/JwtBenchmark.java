@@ -0,0 +1,76 @@
+package com.sky.bench;
+
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.interceptor.JwtTokenVerifier;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * jwt令牌生成和校验的耗时
+ * 校验分别测试每次新建解析器（JwtUtil.parseJWT）、复用解析器和拦截器使用的带缓存的校验器
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    //和application.yml中用户端的配置一致
+    private static final String SECRET_KEY = "iliuziang";
+
+    private static final long TTL_MILLIS = 7200000;
+
+    private Map<String, Object> claims;
+
+    private String token;
+
+    private JwtParser parser;
+
+    private JwtTokenVerifier verifier;
+
+    @Setup
+    public void setup() {
+        claims = new HashMap<>();
+        claims.put(JwtClaimsConstant.USER_ID, 4L);
+        token = JwtUtil.createJWT(SECRET_KEY, TTL_MILLIS, claims);
+        parser = JwtUtil.createParser(SECRET_KEY);
+        verifier = new JwtTokenVerifier(SECRET_KEY, 10000, 600);
+    }
+
+    @Benchmark
+    public String create() {
+        return JwtUtil.createJWT(SECRET_KEY, TTL_MILLIS, claims);
+    }
+
+    @Benchmark
+    public Claims parse() {
+        return JwtUtil.parseJWT(SECRET_KEY, token);
+    }
+
+    @Benchmark
+    public Claims parseWithReusedParser() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return verifier.verify(token);
+    }
+}
@@ -0,0 +1,121 @@
+package com.sky.bench;
+
+import com.sky.bench.support.StandIns;
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.interceptor.JwtTokenAdminInterceptor;
+import com.sky.interceptor.JwtTokenUserInterceptor;
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拦截器链中jwt校验的耗时：preHandle（取请求头、校验令牌、转换claims、设置BaseContext）+ afterCompletion（清理BaseContext）
+ * 令牌校验结果有缓存，正常请求走缓存命中的路径；另外测试令牌无效时返回401的路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtInterceptorBenchmark {
+
+    private JwtTokenUserInterceptor userInterceptor;
+
+    private JwtTokenAdminInterceptor adminInterceptor;
+
+    private HandlerMethod handler;
+
+    private MockHttpServletRequest userRequest;
+
+    private MockHttpServletRequest adminRequest;
+
+    private MockHttpServletRequest invalidRequest;
+
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() throws Exception {
+        //和application.yml中的配置一致
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setAdminSecretKey("itcast");
+        jwtProperties.setAdminTtl(7200000);
+        jwtProperties.setAdminTokenName("token");
+        jwtProperties.setUserSecretKey("iliuziang");
+        jwtProperties.setUserTtl(7200000);
+        jwtProperties.setUserTokenName("authentication");
+
+        userInterceptor = new JwtTokenUserInterceptor();
+        StandIns.inject(userInterceptor, "jwtProperties", jwtProperties);
+        userInterceptor.init();
+        adminInterceptor = new JwtTokenAdminInterceptor();
+        StandIns.inject(adminInterceptor, "jwtProperties", jwtProperties);
+        adminInterceptor.init();
+
+        handler = new HandlerMethod(new StatusController(), StatusController.class.getMethod("getStatus"));
+
+        userRequest = new MockHttpServletRequest("GET", "/user/shop/status");
+        userRequest.addHeader(jwtProperties.getUserTokenName(), JwtUtil.createJWT(jwtProperties.getUserSecretKey(),
+                jwtProperties.getUserTtl(), claims(JwtClaimsConstant.USER_ID, 4L)));
+        adminRequest = new MockHttpServletRequest("GET", "/admin/shop/status");
+        adminRequest.addHeader(jwtProperties.getAdminTokenName(), JwtUtil.createJWT(jwtProperties.getAdminSecretKey(),
+                jwtProperties.getAdminTtl(), claims(JwtClaimsConstant.EMP_ID, 1L)));
+        invalidRequest = new MockHttpServletRequest("GET", "/user/shop/status");
+        invalidRequest.addHeader(jwtProperties.getUserTokenName(), "invalid-token");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public boolean userChain() throws Exception {
+        boolean passed = userInterceptor.preHandle(userRequest, response, handler);
+        userInterceptor.afterCompletion(userRequest, response, handler, null);
+        return passed;
+    }
+
+    @Benchmark
+    public boolean adminChain() throws Exception {
+        boolean passed = adminInterceptor.preHandle(adminRequest, response, handler);
+        adminInterceptor.afterCompletion(adminRequest, response, handler, null);
+        return passed;
+    }
+
+    @Benchmark
+    public boolean rejectedChain() throws Exception {
+        boolean passed = userInterceptor.preHandle(invalidRequest, response, handler);
+        userInterceptor.afterCompletion(invalidRequest, response, handler, null);
+        return passed;
+    }
+
+    //生成令牌时会往claims中写入过期时间，不能使用不可变的map
+    private static Map<String, Object> claims(String name, Object value) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(name, value);
+        return claims;
+    }
+
+    /**
+     * 拦截器只判断handler是否为HandlerMethod，用一个简单的控制器方法代替
+     */
+    public static class StatusController {
+
+        public Integer getStatus() {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.sky.bench;
+
+import com.sky.utils.OrderNumberGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成的吞吐量，单线程和多线程并发下单
+ * timestamp为原来直接使用毫秒时间戳的做法，作为对照（同一毫秒内会重复）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderNumberBenchmark {
+
+    private OrderNumberGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new OrderNumberGenerator(1);
+    }
+
+    @Benchmark
+    public String nextNumber() {
+        return generator.nextNumber();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextNumberContended() {
+        return generator.nextNumber();
+    }
+
+    @Benchmark
+    public String timestamp() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,101 @@
+package com.sky.bench;
+
+import com.sky.bench.support.BenchData;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提交订单时由下单参数生成订单、由购物车生成订单明细的对象拷贝耗时
+ * copyProperties和OrderServiceImpl.createOrder中的写法一致，setters为逐个字段赋值的对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderSubmitCopyBenchmark {
+
+    //插入订单后回填的主键
+    private static final Long ORDER_ID = 1001L;
+
+    //购物车商品数
+    @Param({"3", "10"})
+    private int cartSize;
+
+    private OrdersSubmitDTO ordersSubmitDTO;
+
+    private List<ShoppingCart> shoppingCartList;
+
+    @Setup
+    public void setup() {
+        ordersSubmitDTO = BenchData.ordersSubmitDTO();
+        shoppingCartList = BenchData.shoppingCartList(cartSize);
+    }
+
+    @Benchmark
+    public List<OrderDetail> copyProperties() {
+        Orders orders = new Orders();
+        BeanUtils.copyProperties(ordersSubmitDTO, orders);
+        orders.setId(ORDER_ID);
+
+        List<OrderDetail> orderDetailList = new ArrayList<>(shoppingCartList.size());
+        for (ShoppingCart cart : shoppingCartList) {
+            OrderDetail orderDetail = new OrderDetail();
+            BeanUtils.copyProperties(cart, orderDetail);
+            orderDetail.setOrderId(orders.getId());
+            orderDetailList.add(orderDetail);
+        }
+        return orderDetailList;
+    }
+
+    @Benchmark
+    public List<OrderDetail> setters() {
+        Orders orders = Orders.builder()
+                .id(ORDER_ID)
+                .addressBookId(ordersSubmitDTO.getAddressBookId())
+                .payMethod(ordersSubmitDTO.getPayMethod())
+                .remark(ordersSubmitDTO.getRemark())
+                .estimatedDeliveryTime(ordersSubmitDTO.getEstimatedDeliveryTime())
+                .deliveryStatus(ordersSubmitDTO.getDeliveryStatus())
+                .tablewareNumber(ordersSubmitDTO.getTablewareNumber())
+                .tablewareStatus(ordersSubmitDTO.getTablewareStatus())
+                .packAmount(ordersSubmitDTO.getPackAmount())
+                .amount(ordersSubmitDTO.getAmount())
+                .build();
+
+        List<OrderDetail> orderDetailList = new ArrayList<>(shoppingCartList.size());
+        for (ShoppingCart cart : shoppingCartList) {
+            orderDetailList.add(OrderDetail.builder()
+                    .id(cart.getId())
+                    .name(cart.getName())
+                    .orderId(orders.getId())
+                    .dishId(cart.getDishId())
+                    .setmealId(cart.getSetmealId())
+                    .dishFlavor(cart.getDishFlavor())
+                    .number(cart.getNumber())
+                    .amount(cart.getAmount())
+                    .image(cart.getImage())
+                    .build());
+        }
+        return orderDetailList;
+    }
+}
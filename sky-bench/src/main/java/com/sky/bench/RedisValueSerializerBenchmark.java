@@ -0,0 +1,80 @@
+package com.sky.bench;
+
+import com.sky.bench.support.BenchData;
+import com.sky.cache.RedisValueSerializer;
+import com.sky.result.Result;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存值各序列化格式的耗时和序列化后的大小
+ * 缓存值和用户端菜品缓存一致，为Result包装的菜品列表
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisValueSerializerBenchmark {
+
+    //JDK为原来RedisTemplate默认的JDK序列化，作为对照
+    @Param({"JDK", "JSON", "SMILE"})
+    private String format;
+
+    private RedisSerializer<Object> serializer;
+
+    private Object value;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        serializer = "JDK".equals(format) ? new JdkSerializationRedisSerializer()
+                : new RedisValueSerializer(RedisValueSerializer.Format.valueOf(format));
+        value = Result.success(BenchData.dishVOList(20));
+        bytes = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize(Size size) {
+        byte[] result = serializer.serialize(value);
+        size.bytes = result.length;
+        return result;
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * 序列化后的字节数，随结果一起输出
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+}
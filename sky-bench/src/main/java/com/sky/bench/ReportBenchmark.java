@@ -0,0 +1,114 @@
+package com.sky.bench;
+
+import com.sky.bench.support.StandIns;
+import com.sky.dto.OrderDailyDTO;
+import com.sky.dto.UserDailyDTO;
+import com.sky.entity.BusinessDailyStats;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessDailyStatsService;
+import com.sky.service.impl.ReportServiceImpl;
+import com.sky.vo.OrderReportVO;
+import com.sky.vo.TurnoverReportVO;
+import com.sky.vo.UserReportVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 数据统计接口在内存替身上的耗时，包括日期列表的生成、按天补0和拼接字符串
+ * 统计区间截止到今天：已结束的日期由每日汇总替身返回，今天的数据由mapper替身返回
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportBenchmark {
+
+    //统计的天数
+    @Param({"7", "30", "365"})
+    private int days;
+
+    private ReportServiceImpl reportService;
+
+    private LocalDate begin;
+
+    private LocalDate end;
+
+    @Setup
+    public void setup() {
+        end = LocalDate.now();
+        begin = end.minusDays(days - 1);
+
+        //已结束的日期每隔一天有数据，其余日期需要补0
+        List<BusinessDailyStats> closedDays = new ArrayList<>();
+        for (LocalDate date = begin; date.isBefore(end); date = date.plusDays(2)) {
+            closedDays.add(BusinessDailyStats.builder()
+                    .statDate(date)
+                    .totalOrderCount(120)
+                    .validOrderCount(100)
+                    .turnover(new BigDecimal("5230.50"))
+                    .newUsers(8)
+                    .build());
+        }
+        List<OrderDailyDTO> today = Collections.singletonList(OrderDailyDTO.builder()
+                .orderDate(end).orderCount(60).validOrderCount(45).turnover(2380.0).build());
+        List<UserDailyDTO> todayUsers = Collections.singletonList(UserDailyDTO.builder()
+                .createDate(end).newUsers(3).build());
+
+        BusinessDailyStatsService businessDailyStatsService = StandIns.of(BusinessDailyStatsService.class)
+                .on("listClosedDays", args -> {
+                    LocalDate from = (LocalDate) args[0];
+                    LocalDate to = (LocalDate) args[1];
+                    return closedDays.stream()
+                            .filter(x -> !x.getStatDate().isBefore(from) && !x.getStatDate().isAfter(to))
+                            .collect(Collectors.toList());
+                })
+                .build();
+        OrderMapper orderMapper = StandIns.of(OrderMapper.class)
+                .on("sumDailyByRange", args -> today)
+                .build();
+        UserMapper userMapper = StandIns.of(UserMapper.class)
+                .on("countByMap", args -> 10000)
+                .on("countDailyByRange", args -> todayUsers)
+                .build();
+
+        reportService = new ReportServiceImpl();
+        StandIns.inject(reportService, "orderMapper", orderMapper);
+        StandIns.inject(reportService, "userMapper", userMapper);
+        StandIns.inject(reportService, "businessDailyStatsService", businessDailyStatsService);
+    }
+
+    @Benchmark
+    public TurnoverReportVO turnoverStatistics() {
+        return reportService.getTurnoverStatistics(begin, end);
+    }
+
+    @Benchmark
+    public UserReportVO userStatistics() {
+        return reportService.getUserStatistics(begin, end);
+    }
+
+    @Benchmark
+    public OrderReportVO orderStatistics() {
+        return reportService.getOrderStatistics(begin, end);
+    }
+}
@@ -0,0 +1,141 @@
+package com.sky.bench.support;
+
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.DishFlavor;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import com.sky.vo.DishVO;
+import com.sky.vo.OrderVO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试数据，字段取值和长度接近线上的真实数据
+ */
+public class BenchData {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 6, 18, 11, 30, 15);
+
+    /**
+     * 一个分类下的菜品列表，每个菜品带2个口味
+     * @param size
+     * @return
+     */
+    public static List<DishVO> dishVOList(int size) {
+        List<DishVO> list = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            DishVO dishVO = DishVO.builder()
+                    .id(i)
+                    .name("水煮鱼" + i)
+                    .categoryId(11L)
+                    .price(new BigDecimal("48.00"))
+                    .image("https://sky-take-out.oss-cn-hangzhou.aliyuncs.com/dish/" + i + ".png")
+                    .description("鲜鱼片配秘制红油，麻辣鲜香")
+                    .status(1)
+                    .updateTime(TIME)
+                    .categoryName("酒水饮料")
+                    .flavors(Arrays.asList(
+                            DishFlavor.builder().id(i * 10).dishId(i).name("辣度")
+                                    .value("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]").build(),
+                            DishFlavor.builder().id(i * 10 + 1).dishId(i).name("忌口")
+                                    .value("[\"不要葱\",\"不要蒜\",\"不要香菜\",\"不要辣\"]").build()))
+                    .build();
+            list.add(dishVO);
+        }
+        return list;
+    }
+
+    /**
+     * 带明细的订单详情
+     * @param detailSize 订单明细条数
+     * @return
+     */
+    public static OrderVO orderVO(int detailSize) {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setId(1001L);
+        orderVO.setNumber("1839475628374659072");
+        orderVO.setStatus(Orders.TO_BE_CONFIRMED);
+        orderVO.setUserId(4L);
+        orderVO.setAddressBookId(2L);
+        orderVO.setOrderTime(TIME);
+        orderVO.setCheckoutTime(TIME.plusMinutes(1));
+        orderVO.setPayMethod(1);
+        orderVO.setPayStatus(Orders.PAID);
+        orderVO.setAmount(new BigDecimal("156.00"));
+        orderVO.setRemark("少放辣");
+        orderVO.setPhone("13812345678");
+        orderVO.setAddress("江苏省南京市栖霞区仙林大道163号");
+        orderVO.setConsignee("张三");
+        orderVO.setEstimatedDeliveryTime(TIME.plusMinutes(45));
+        orderVO.setDeliveryStatus(1);
+        orderVO.setPackAmount(2);
+        orderVO.setTablewareNumber(2);
+        orderVO.setTablewareStatus(0);
+
+        List<OrderDetail> details = new ArrayList<>(detailSize);
+        StringBuilder orderDishes = new StringBuilder();
+        for (long i = 1; i <= detailSize; i++) {
+            OrderDetail orderDetail = OrderDetail.builder()
+                    .id(i)
+                    .name("水煮鱼" + i)
+                    .orderId(1001L)
+                    .dishId(i)
+                    .dishFlavor("微辣,不要香菜")
+                    .number(1)
+                    .amount(new BigDecimal("48.00"))
+                    .image("https://sky-take-out.oss-cn-hangzhou.aliyuncs.com/dish/" + i + ".png")
+                    .build();
+            details.add(orderDetail);
+            orderDishes.append(orderDetail.getName()).append('*').append(orderDetail.getNumber()).append(';');
+        }
+        orderVO.setOrderDetailList(details);
+        orderVO.setOrderDishes(orderDishes.toString());
+        return orderVO;
+    }
+
+    /**
+     * 用户提交订单的参数
+     * @return
+     */
+    public static OrdersSubmitDTO ordersSubmitDTO() {
+        OrdersSubmitDTO ordersSubmitDTO = new OrdersSubmitDTO();
+        ordersSubmitDTO.setAddressBookId(2L);
+        ordersSubmitDTO.setPayMethod(1);
+        ordersSubmitDTO.setRemark("少放辣");
+        ordersSubmitDTO.setEstimatedDeliveryTime(TIME.plusMinutes(45));
+        ordersSubmitDTO.setDeliveryStatus(1);
+        ordersSubmitDTO.setTablewareNumber(2);
+        ordersSubmitDTO.setTablewareStatus(0);
+        ordersSubmitDTO.setPackAmount(2);
+        ordersSubmitDTO.setAmount(new BigDecimal("156.00"));
+        return ordersSubmitDTO;
+    }
+
+    /**
+     * 购物车数据
+     * @param size
+     * @return
+     */
+    public static List<ShoppingCart> shoppingCartList(int size) {
+        List<ShoppingCart> list = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            list.add(ShoppingCart.builder()
+                    .id(i)
+                    .name("水煮鱼" + i)
+                    .userId(4L)
+                    .dishId(i)
+                    .dishFlavor("微辣,不要香菜")
+                    .number(1)
+                    .amount(new BigDecimal("48.00"))
+                    .image("https://sky-take-out.oss-cn-hangzhou.aliyuncs.com/dish/" + i + ".png")
+                    .createTime(TIME)
+                    .build());
+        }
+        return list;
+    }
+}
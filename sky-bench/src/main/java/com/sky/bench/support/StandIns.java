@@ -0,0 +1,113 @@
+package com.sky.bench.support;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 基准测试用的内存替身，不连接数据库和redis
+ * mapper和service接口用jdk动态代理实现：登记过的方法按方法名返回预先准备好的数据，
+ * 其他方法返回空集合、0或null，和没有数据时的真实mapper行为一致
+ */
+public class StandIns {
+
+    /**
+     * 开始创建一个接口的替身
+     * @param type mapper或service接口
+     * @param <T>
+     * @return
+     */
+    public static <T> Builder<T> of(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    /**
+     * 为@Autowired字段注入替身或其他依赖
+     * @param target
+     * @param fieldName
+     * @param value
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getName() + "中没有字段：" + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    public static class Builder<T> {
+
+        private final Class<T> type;
+
+        //方法名 -> 根据参数返回结果
+        private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+
+        private Builder(Class<T> type) {
+            this.type = type;
+        }
+
+        /**
+         * 指定方法调用时的返回值
+         * @param methodName
+         * @param answer 参数为方法实参
+         * @return
+         */
+        public Builder<T> on(String methodName, Function<Object[], Object> answer) {
+            answers.put(methodName, answer);
+            return this;
+        }
+
+        public T build() {
+            Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    switch (method.getName()) {
+                        case "equals":
+                            return p == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        default:
+                            return type.getSimpleName() + "StandIn";
+                    }
+                }
+
+                Function<Object[], Object> answer = answers.get(method.getName());
+                if (answer != null) {
+                    return answer.apply(args);
+                }
+                return defaultValue(method.getReturnType());
+            });
+            return type.cast(proxy);
+        }
+
+        private static Object defaultValue(Class<?> returnType) {
+            if (List.class.isAssignableFrom(returnType) || returnType == Collection.class) {
+                return Collections.emptyList();
+            }
+            if (Set.class.isAssignableFrom(returnType)) {
+                return Collections.emptySet();
+            }
+            if (Map.class.isAssignableFrom(returnType)) {
+                return Collections.emptyMap();
+            }
+            if (returnType == Integer.class || returnType == int.class) {
+                return 0;
+            }
+            if (returnType == Long.class || returnType == long.class) {
+                return 0L;
+            }
+            if (returnType == boolean.class) {
+                return false;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http")
+@Data
+public class HttpClientProperties {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个路由（目标主机）的最大连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 建立连接超时时间，单位毫秒
+     */
+    private int connectTimeout = 2000;
+
+    /**
+     * 读取数据超时时间，单位毫秒
+     */
+    private int readTimeout = 5000;
+
+    /**
+     * 从连接池获取连接的超时时间，单位毫秒
+     */
+    private int connectionRequestTimeout = 1000;
+
+    /**
+     * 空闲连接保留时间，超过后被后台线程回收，单位毫秒
+     */
+    private long idleTimeout = 30000;
+
+    /**
+     * 连接空闲超过该时间后，复用前先检查是否可用，单位毫秒
+     */
+    private int validateAfterInactivity = 2000;
+
+}
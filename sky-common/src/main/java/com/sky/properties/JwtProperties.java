@@ -23,4 +23,14 @@ public class JwtProperties {
     private long userTtl;
     private String userTokenName;
 
+    /**
+     * 已校验令牌的缓存条数，管理端和用户端分别缓存
+     */
+    private long verifiedCacheSize = 10000;
+
+    /**
+     * 已校验令牌的最长缓存时间，单位秒，令牌过期时提前失效
+     */
+    private long verifiedCacheSeconds = 600;
+
 }
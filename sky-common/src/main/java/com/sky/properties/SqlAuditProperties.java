@@ -0,0 +1,37 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.sql-audit")
+@Data
+public class SqlAuditProperties {
+
+    /**
+     * 是否开启sql审计
+     */
+    private boolean enabled = true;
+
+    /**
+     * 慢sql阈值，超过后连同参数一起打印，单位毫秒
+     */
+    private long slowMillis = 200;
+
+    /**
+     * 一次请求中同一条sql执行次数达到该值时视为N+1查询
+     */
+    private int repeatThreshold = 10;
+
+    /**
+     * 一次请求最多执行的sql条数
+     */
+    private int maxQueriesPerRequest = 50;
+
+    /**
+     * 超出查询预算或出现N+1查询时是否抛出异常，测试环境开启后接口测试直接失败
+     */
+    private boolean failOnViolation = false;
+
+}
@@ -1,17 +1,28 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
@@ -19,13 +30,145 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的客户端，连接保持长连接复用，避免每次请求都重新握手
  */
+@Slf4j
 public class HttpClientUtil {
 
-    static final  int TIMEOUT_MSEC = 5 * 1000;
+    //请求耗时指标，按目标主机、请求方法和响应状态统计
+    public static final String REQUEST_METRIC = "httpclient.requests";
+
+    //从连接池获取连接的次数
+    private static final LongAdder LEASE_COUNT = new LongAdder();
+
+    //从连接池获取连接的累计等待时间，单位纳秒
+    private static final LongAdder LEASE_TIME_NANOS = new LongAdder();
+
+    //从连接池获取连接的最大等待时间，单位纳秒
+    private static final AtomicLong MAX_LEASE_TIME_NANOS = new AtomicLong();
+
+    private static volatile PoolingHttpClientConnectionManager connectionManager;
+
+    private static volatile CloseableHttpClient httpClient;
+
+    private static volatile RequestConfig requestConfig;
+
+    /**
+     * 按照配置创建共享的连接池客户端，重复调用时会替换并关闭旧的客户端
+     * @param properties
+     * @return
+     */
+    public static synchronized CloseableHttpClient init(HttpClientProperties properties) {
+        PoolingHttpClientConnectionManager manager = new LeaseTimingConnectionManager();
+        manager.setMaxTotal(properties.getMaxTotal());
+        manager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        manager.setValidateAfterInactivity(properties.getValidateAfterInactivity());
+
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
+                .setSocketTimeout(properties.getReadTimeout()).build();
+
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(config)
+                //后台线程定期回收过期和空闲的连接
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getIdleTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+
+        CloseableHttpClient old = httpClient;
+        connectionManager = manager;
+        requestConfig = config;
+        httpClient = client;
+        closeQuietly(old);
+        return client;
+    }
+
+    /**
+     * 获取共享的客户端，未初始化时使用默认配置创建
+     * @return
+     */
+    public static CloseableHttpClient getHttpClient() {
+        CloseableHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (HttpClientUtil.class) {
+                client = httpClient;
+                if (client == null) {
+                    client = init(new HttpClientProperties());
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * 获取共享的连接池，其他客户端（如微信支付）可以复用同一个连接池
+     * @return
+     */
+    public static PoolingHttpClientConnectionManager getConnectionManager() {
+        getHttpClient();
+        return connectionManager;
+    }
+
+    /**
+     * 获取默认的请求超时配置
+     * @return
+     */
+    public static RequestConfig getRequestConfig() {
+        getHttpClient();
+        return requestConfig;
+    }
+
+    /**
+     * 关闭共享的客户端和连接池
+     */
+    public static synchronized void close() {
+        CloseableHttpClient client = httpClient;
+        httpClient = null;
+        connectionManager = null;
+        requestConfig = null;
+        closeQuietly(client);
+    }
+
+    /**
+     * 连接池当前状态（租用中、空闲、等待中的连接数）
+     * @return
+     */
+    public static PoolStats getPoolStats() {
+        return getConnectionManager().getTotalStats();
+    }
+
+    /**
+     * 从连接池获取连接的次数
+     * @return
+     */
+    public static long getLeaseCount() {
+        return LEASE_COUNT.sum();
+    }
+
+    /**
+     * 从连接池获取连接的累计等待时间，单位毫秒
+     * @return
+     */
+    public static double getLeaseTimeTotalMillis() {
+        return LEASE_TIME_NANOS.sum() / 1_000_000.0;
+    }
+
+    /**
+     * 从连接池获取连接的最大等待时间，单位毫秒
+     * @return
+     */
+    public static double getLeaseTimeMaxMillis() {
+        return MAX_LEASE_TIME_NANOS.get() / 1_000_000.0;
+    }
 
     /**
      * 发送GET方式请求
@@ -34,9 +177,6 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-
         String result = "";
         CloseableHttpResponse response = null;
 
@@ -53,7 +193,7 @@ public class HttpClientUtil {
             HttpGet httpGet = new HttpGet(uri);
 
             //发送请求
-            response = httpClient.execute(httpGet);
+            response = execute(getHttpClient(), httpGet);
 
             //判断响应状态
             if(response.getStatusLine().getStatusCode() == 200){
@@ -62,12 +202,7 @@ public class HttpClientUtil {
         }catch (Exception e){
             e.printStackTrace();
         }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            release(response);
         }
 
         return result;
@@ -81,8 +216,6 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -101,20 +234,12 @@ public class HttpClientUtil {
                 httpPost.setEntity(entity);
             }
 
-            httpPost.setConfig(builderRequestConfig());
-
             // 执行http请求
-            response = httpClient.execute(httpPost);
+            response = execute(getHttpClient(), httpPost);
 
             resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            release(response);
         }
 
         return resultString;
@@ -128,8 +253,6 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -151,29 +274,97 @@ public class HttpClientUtil {
                 httpPost.setEntity(entity);
             }
 
-            httpPost.setConfig(builderRequestConfig());
-
             // 执行http请求
-            response = httpClient.execute(httpPost);
+            response = execute(getHttpClient(), httpPost);
 
             resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            release(response);
         }
 
         return resultString;
     }
-    private static RequestConfig builderRequestConfig() {
-        return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
+
+    /**
+     * 执行请求并按目标主机记录耗时（到收到响应头为止），指标注册到全局的MeterRegistry
+     * @param client
+     * @param request
+     * @return
+     * @throws IOException
+     */
+    public static CloseableHttpResponse execute(CloseableHttpClient client, HttpUriRequest request) throws IOException {
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        try {
+            CloseableHttpResponse response = client.execute(request);
+            status = String.valueOf(response.getStatusLine().getStatusCode());
+            return response;
+        } finally {
+            Timer.builder(REQUEST_METRIC)
+                    .tag("host", String.valueOf(request.getURI().getHost()))
+                    .tag("method", request.getMethod())
+                    .tag("status", status)
+                    .register(Metrics.globalRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 读完剩余的响应内容后关闭响应，使连接归还连接池而不是被断开
+     * @param response
+     */
+    private static void release(CloseableHttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            EntityUtils.consume(response.getEntity());
+            response.close();
+        } catch (IOException e) {
+            log.warn("释放http连接失败：{}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(CloseableHttpClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.warn("关闭http客户端失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录从连接池获取连接耗时的连接池
+     */
+    private static class LeaseTimingConnectionManager extends PoolingHttpClientConnectionManager {
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        return request.get(timeout, timeUnit);
+                    } finally {
+                        long elapsed = System.nanoTime() - start;
+                        LEASE_COUNT.increment();
+                        LEASE_TIME_NANOS.add(elapsed);
+                        MAX_LEASE_TIME_NANOS.accumulateAndGet(elapsed, Math::max);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
     }
 
 }
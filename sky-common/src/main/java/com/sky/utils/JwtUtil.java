@@ -2,8 +2,11 @@ package com.sky.utils;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Map;
@@ -55,4 +58,16 @@ public class JwtUtil {
         return claims;
     }
 
+    /**
+     * 创建可复用的Token解析器，秘钥只转换一次，解析器创建后只读，可以被多个线程共用
+     *
+     * @param secretKey jwt秘钥
+     * @return
+     */
+    public static JwtParser createParser(String secretKey) {
+        SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8),
+                SignatureAlgorithm.HS256.getJcaName());
+        return Jwts.parser().setSigningKey(key);
+    }
+
 }
@@ -0,0 +1,111 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 订单号生成器，雪花算法
+ * 订单号由41位相对时间戳（毫秒）、10位机器id和12位序号组成，同一节点内严格递增，不同节点的机器id不同因此不会重复
+ * 时间戳和序号保存在同一个AtomicLong中，通过CAS无锁更新；同一毫秒内序号用完或系统时钟回拨时，
+ * 继续在上一次的时间戳上递增（序号溢出会进位到时间戳），不会等待也不会生成重复的订单号
+ * 机器id通过租约分配时，租约有效期之外不再生成id，避免和接手该机器id的节点生成重复的订单号
+ */
+public class OrderNumberGenerator {
+
+    //起始时间 2024-01-01 00:00:00（东八区）
+    public static final long EPOCH = 1704038400000L;
+
+    //机器id位数
+    public static final int WORKER_ID_BITS = 10;
+
+    //序号位数
+    public static final int SEQUENCE_BITS = 12;
+
+    //最大机器id
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+    //当前使用的机器id及其有效期，两者一起替换
+    private volatile Lease lease;
+
+    //当前时间（毫秒），测试时可以替换成可回拨的时钟
+    private final LongSupplier clock;
+
+    //高位为上一次使用的相对时间戳，低12位为该毫秒内的序号
+    private final AtomicLong state = new AtomicLong();
+
+    public OrderNumberGenerator(long workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    OrderNumberGenerator(long workerId, LongSupplier clock) {
+        checkWorkerId(workerId);
+        this.lease = new Lease(workerId, Long.MAX_VALUE);
+        this.clock = clock;
+    }
+
+    public long getWorkerId() {
+        return lease.workerId;
+    }
+
+    /**
+     * 设置机器id及其租约到期时间，续期或更换机器id时调用
+     * @param workerId
+     * @param validUntil 租约到期时间（毫秒时间戳），到期后nextId抛出异常直到再次设置
+     */
+    public void setLease(long workerId, long validUntil) {
+        checkWorkerId(workerId);
+        this.lease = new Lease(workerId, validUntil);
+    }
+
+    /**
+     * 生成下一个id
+     * @return
+     */
+    public long nextId() {
+        while (true) {
+            Lease lease = this.lease;
+            long millis = clock.getAsLong();
+            if (millis >= lease.validUntil) {
+                throw new IllegalStateException("机器id：" + lease.workerId + "的租约已失效，暂停生成订单号");
+            }
+
+            long current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            long now = millis - EPOCH;
+
+            //时钟前进时序号从0开始，否则在上一次的时间戳上递增序号
+            long next = now > lastTimestamp ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS)) | (lease.workerId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    /**
+     * 生成下一个订单号
+     * @return
+     */
+    public String nextNumber() {
+        return String.valueOf(nextId());
+    }
+
+    private static void checkWorkerId(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId必须在0到" + MAX_WORKER_ID + "之间：" + workerId);
+        }
+    }
+
+    private static class Lease {
+
+        private final long workerId;
+
+        private final long validUntil;
+
+        private Lease(long workerId, long validUntil) {
+            this.workerId = workerId;
+            this.validUntil = validUntil;
+        }
+    }
+}
@@ -44,12 +44,34 @@ public class WeChatPayUtil {
     @Autowired
     private WeChatProperties weChatProperties;
 
+    //调用微信接口的客户端，创建后复用
+    private volatile CloseableHttpClient httpClient;
+
     /**
      * 获取调用微信接口的客户端工具对象
      *
      * @return
      */
     private CloseableHttpClient getClient() {
+        CloseableHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    client = buildClient();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * 创建调用微信接口的客户端，与HttpClientUtil共用同一个连接池
+     *
+     * @return
+     */
+    private CloseableHttpClient buildClient() {
         PrivateKey merchantPrivateKey = null;
         try {
             //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
@@ -62,6 +84,9 @@ public class WeChatPayUtil {
             WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
                     .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
                     .withWechatPay(wechatPayCertificates);
+            builder.setConnectionManager(HttpClientUtil.getConnectionManager())
+                    .setConnectionManagerShared(true)
+                    .setDefaultRequestConfig(HttpClientUtil.getRequestConfig());
 
             // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
             CloseableHttpClient httpClient = builder.build();
@@ -88,12 +113,11 @@ public class WeChatPayUtil {
         httpPost.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
         httpPost.setEntity(new StringEntity(body, "UTF-8"));
 
-        CloseableHttpResponse response = httpClient.execute(httpPost);
+        CloseableHttpResponse response = HttpClientUtil.execute(httpClient, httpPost);
         try {
             String bodyAsString = EntityUtils.toString(response.getEntity());
             return bodyAsString;
         } finally {
-            httpClient.close();
             response.close();
         }
     }
@@ -112,12 +136,11 @@ public class WeChatPayUtil {
         httpGet.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
+        CloseableHttpResponse response = HttpClientUtil.execute(httpClient, httpGet);
         try {
             String bodyAsString = EntityUtils.toString(response.getEntity());
             return bodyAsString;
         } finally {
-            httpClient.close();
             response.close();
         }
     }
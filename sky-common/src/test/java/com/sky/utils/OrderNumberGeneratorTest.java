@@ -0,0 +1,132 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+
+    private static final int IDS_PER_THREAD = 50_000;
+
+    /**
+     * 多线程并发生成的id不重复，且每个线程内严格递增
+     */
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        OrderNumberGenerator generator = new OrderNumberGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long last = -1;
+                    for (int j = 0; j < IDS_PER_THREAD; j++) {
+                        long id = generator.nextId();
+                        assertTrue(id > last, "同一线程内id应递增：" + last + " -> " + id);
+                        assertTrue(ids.add(id), "id重复：" + id);
+                        last = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    /**
+     * 时钟回拨时继续在上一次的时间戳上递增，不生成重复或更小的id
+     */
+    @Test
+    void clockGoingBackwardsKeepsIncreasing() {
+        AtomicLong clock = new AtomicLong(OrderNumberGenerator.EPOCH + 100_000);
+        OrderNumberGenerator generator = new OrderNumberGenerator(1, clock::get);
+
+        long beforeRollback = generator.nextId();
+        clock.addAndGet(-5_000);
+        long last = beforeRollback;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last, "时钟回拨后id应继续递增：" + last + " -> " + id);
+            last = id;
+        }
+
+        //时钟追上之后恢复使用当前时间戳
+        clock.addAndGet(60_000);
+        long afterRecovery = generator.nextId();
+        assertTrue(afterRecovery > last);
+        assertEquals(clock.get() - OrderNumberGenerator.EPOCH,
+                afterRecovery >>> (OrderNumberGenerator.WORKER_ID_BITS + OrderNumberGenerator.SEQUENCE_BITS));
+    }
+
+    /**
+     * 同一毫秒内序号用完时进位到下一毫秒
+     */
+    @Test
+    void sequenceOverflowCarriesIntoTimestamp() {
+        long now = OrderNumberGenerator.EPOCH + 100_000;
+        OrderNumberGenerator generator = new OrderNumberGenerator(3, () -> now);
+        int perMillis = 1 << OrderNumberGenerator.SEQUENCE_BITS;
+
+        long last = -1;
+        for (int i = 0; i < perMillis + 1; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            assertEquals(3, (id >>> OrderNumberGenerator.SEQUENCE_BITS) & OrderNumberGenerator.MAX_WORKER_ID);
+            last = id;
+        }
+        assertEquals(now - OrderNumberGenerator.EPOCH + 1,
+                last >>> (OrderNumberGenerator.WORKER_ID_BITS + OrderNumberGenerator.SEQUENCE_BITS));
+    }
+
+    /**
+     * 租约到期后暂停生成id，重新设置租约后使用新的机器id继续递增
+     */
+    @Test
+    void expiredLeaseStopsUntilRenewed() {
+        AtomicLong clock = new AtomicLong(OrderNumberGenerator.EPOCH + 100_000);
+        OrderNumberGenerator generator = new OrderNumberGenerator(1, clock::get);
+        generator.setLease(1, clock.get() + 1_000);
+
+        long beforeExpiry = generator.nextId();
+        clock.addAndGet(1_000);
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        generator.setLease(2, clock.get() + 1_000);
+        long afterRenewal = generator.nextId();
+        assertTrue(afterRenewal > beforeExpiry);
+        assertEquals(2, (afterRenewal >>> OrderNumberGenerator.SEQUENCE_BITS) & OrderNumberGenerator.MAX_WORKER_ID);
+        assertEquals(2, generator.getWorkerId());
+    }
+
+    @Test
+    void rejectsWorkerIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(OrderNumberGenerator.MAX_WORKER_ID + 1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(1).setLease(-1, Long.MAX_VALUE));
+    }
+}
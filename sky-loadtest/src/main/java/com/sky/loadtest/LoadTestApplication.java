@@ -0,0 +1,143 @@
+package com.sky.loadtest;
+
+import com.sky.SkyApplication;
+import com.sky.loadtest.client.LatencyRecorder;
+import com.sky.loadtest.client.SkyClient;
+import com.sky.loadtest.report.LoadTestReport;
+import com.sky.loadtest.scenario.AdminScenario;
+import com.sky.loadtest.scenario.CustomerScenario;
+import com.sky.loadtest.standin.StubApiServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 端到端压测：启动内嵌redis、H2内存库（MySQL模式）和外部接口替身，在同一进程中启动SkyApplication，
+ * 再用多个虚拟用户模拟点餐和商家处理订单的流量，预热后统计各接口的吞吐量和延迟分位数
+ *
+ * 运行：java -jar sky-loadtest/target/sky-loadtest-1.0-SNAPSHOT.jar --users=32 --duration-seconds=60
+ */
+@Slf4j
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        int redisPort = freePort();
+        RedisServer redisServer = RedisServer.newRedisServer()
+                .bind("127.0.0.1")
+                .port(redisPort)
+                .setting("save \"\"")
+                .build();
+        redisServer.start();
+
+        StubApiServer stubApiServer = new StubApiServer(options.getStubLatencyMillis());
+        stubApiServer.start();
+
+        ConfigurableApplicationContext context = null;
+        try {
+            context = SpringApplication.run(SkyApplication.class, applicationArgs(options, redisPort, stubApiServer));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String apiV3Key = context.getEnvironment().getProperty("sky.wechat.api-v3-key");
+
+            LoadTestReport report = run(options, "http://127.0.0.1:" + port, apiV3Key, stubApiServer);
+            System.out.println(report.toTable());
+            Path result = report.write(options.getResult());
+            log.warn("压测结果已写入：{}", result);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            stubApiServer.stop();
+            redisServer.stop();
+        }
+    }
+
+    /**
+     * 启动虚拟用户，预热后统计指定时长
+     * @param options
+     * @param baseUrl
+     * @param apiV3Key
+     * @param stubApiServer
+     * @return
+     * @throws Exception
+     */
+    private static LoadTestReport run(LoadTestOptions options, String baseUrl, String apiV3Key,
+                                      StubApiServer stubApiServer) throws Exception {
+        int threads = options.getUsers() + options.getAdmins();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(5000)
+                .setSocketTimeout(60000)
+                .build();
+        LatencyRecorder recorder = new LatencyRecorder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try (CloseableHttpClient httpClient = HttpClients.custom()
+                .setMaxConnTotal(threads + 8)
+                .setMaxConnPerRoute(threads + 8)
+                .setDefaultRequestConfig(requestConfig)
+                .disableCookieManagement()
+                .build()) {
+            for (int i = 0; i < options.getUsers(); i++) {
+                executor.execute(new CustomerScenario(new SkyClient(httpClient, baseUrl, recorder), i, options, apiV3Key, running));
+            }
+            for (int i = 0; i < options.getAdmins(); i++) {
+                executor.execute(new AdminScenario(new SkyClient(httpClient, baseUrl, recorder), i, options, running));
+            }
+
+            log.warn("预热{}秒，虚拟用户：用户端{}个，管理端{}个", options.getWarmupSeconds(), options.getUsers(), options.getAdmins());
+            TimeUnit.SECONDS.sleep(options.getWarmupSeconds());
+            recorder.start();
+            log.warn("开始统计，时长{}秒", options.getDurationSeconds());
+            TimeUnit.SECONDS.sleep(options.getDurationSeconds());
+            recorder.stop();
+
+            running.set(false);
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        }
+        return new LoadTestReport(recorder, options, stubApiServer.getCallCounts());
+    }
+
+    /**
+     * 传给SkyApplication的参数：启用loadtest配置，并把redis和外部接口指向本地替身
+     * 以命令行参数传入，优先级高于配置文件
+     * @param options
+     * @param redisPort
+     * @param stubApiServer
+     * @return
+     */
+    private static String[] applicationArgs(LoadTestOptions options, int redisPort, StubApiServer stubApiServer) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.profiles.active=dev,loadtest");
+        args.add("--spring.redis.port=" + redisPort);
+        args.add("--sky.baidu.api-url=" + stubApiServer.getBaseUrl());
+        args.add("--sky.wechat.login-url=" + stubApiServer.getBaseUrl() + StubApiServer.WX_LOGIN);
+        args.addAll(options.getApplicationArgs());
+        return args.toArray(new String[0]);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
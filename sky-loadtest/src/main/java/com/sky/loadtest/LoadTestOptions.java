@@ -0,0 +1,99 @@
+package com.sky.loadtest;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压测参数，命令行中以 --name=value 的形式传入，其他参数原样传给SkyApplication
+ */
+@Data
+public class LoadTestOptions {
+
+    //预热时长（秒），预热期间的请求不计入结果
+    private int warmupSeconds = 10;
+
+    //统计时长（秒）
+    private int durationSeconds = 60;
+
+    //并发的用户端虚拟用户数
+    private int users = 32;
+
+    //并发的管理端虚拟用户数
+    private int admins = 2;
+
+    //用户端两次请求之间的思考时间（毫秒），为0时不停顿，测出最大吞吐量
+    private long thinkMillis = 0;
+
+    //每轮浏览后提交订单的比例，其余的清空购物车离开
+    private double submitRatio = 0.3;
+
+    //管理端工作台的轮询间隔（毫秒）
+    private long adminPollMillis = 1000;
+
+    //管理端每轮询多少次导出一次报表
+    private int exportEvery = 30;
+
+    //百度地图、微信替身接口的响应延迟（毫秒），模拟外部接口的网络耗时
+    private long stubLatencyMillis = 20;
+
+    //结果文件
+    private String result = "loadtest-result.json";
+
+    //传给SkyApplication的参数
+    private List<String> applicationArgs = new ArrayList<>();
+
+    /**
+     * 解析命令行参数
+     * @param args
+     * @return
+     */
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (!arg.startsWith("--") || index < 0) {
+                options.applicationArgs.add(arg);
+                continue;
+            }
+            String name = arg.substring(2, index);
+            String value = arg.substring(index + 1);
+            switch (name) {
+                case "warmup-seconds":
+                    options.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "duration-seconds":
+                    options.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "users":
+                    options.users = Integer.parseInt(value);
+                    break;
+                case "admins":
+                    options.admins = Integer.parseInt(value);
+                    break;
+                case "think-millis":
+                    options.thinkMillis = Long.parseLong(value);
+                    break;
+                case "submit-ratio":
+                    options.submitRatio = Double.parseDouble(value);
+                    break;
+                case "admin-poll-millis":
+                    options.adminPollMillis = Long.parseLong(value);
+                    break;
+                case "export-every":
+                    options.exportEvery = Integer.parseInt(value);
+                    break;
+                case "stub-latency-millis":
+                    options.stubLatencyMillis = Long.parseLong(value);
+                    break;
+                case "result":
+                    options.result = value;
+                    break;
+                default:
+                    options.applicationArgs.add(arg);
+            }
+        }
+        return options;
+    }
+}
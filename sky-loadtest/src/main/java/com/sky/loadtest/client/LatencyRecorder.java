@@ -0,0 +1,104 @@
+package com.sky.loadtest.client;
+
+import lombok.Getter;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按接口记录请求耗时和失败次数
+ * 只有在统计阶段（start到stop之间）的请求才会被记录，预热阶段的请求被忽略
+ */
+public class LatencyRecorder {
+
+    //可记录的最大耗时，单位微秒
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    private volatile long startNanos;
+
+    private volatile long stopNanos;
+
+    /**
+     * 开始统计，清除预热阶段的数据
+     */
+    public void start() {
+        stats.clear();
+        startNanos = System.nanoTime();
+        recording = true;
+    }
+
+    /**
+     * 结束统计
+     */
+    public void stop() {
+        recording = false;
+        stopNanos = System.nanoTime();
+    }
+
+    /**
+     * 统计时长，单位秒
+     * @return
+     */
+    public double getElapsedSeconds() {
+        long end = recording ? System.nanoTime() : stopNanos;
+        return (end - startNanos) / 1_000_000_000.0;
+    }
+
+    /**
+     * 记录一次请求
+     * @param endpoint 接口，如 GET /user/dish/list
+     * @param latencyNanos
+     * @param success
+     */
+    public void record(String endpoint, long latencyNanos, boolean success) {
+        if (!recording) {
+            return;
+        }
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, x -> new EndpointStats());
+        endpointStats.histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        if (!success) {
+            endpointStats.errors.increment();
+        }
+    }
+
+    /**
+     * 各接口的统计数据，按接口排序
+     * @return
+     */
+    public Map<String, EndpointStats> getStats() {
+        return new TreeMap<>(stats);
+    }
+
+    /**
+     * 所有接口合计的统计数据
+     * @return
+     */
+    public EndpointStats getTotal() {
+        EndpointStats total = new EndpointStats();
+        stats.values().forEach(x -> {
+            total.histogram.add(x.histogram);
+            total.errors.add(x.errors.sum());
+        });
+        return total;
+    }
+
+    /**
+     * 一个接口的耗时分布（微秒）和失败次数
+     */
+    @Getter
+    public static class EndpointStats {
+
+        private final Histogram histogram = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,238 @@
+package com.sky.loadtest.client;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个虚拟用户的http客户端，登录后的请求自动带上令牌，每个请求的耗时和结果记录到LatencyRecorder
+ * 耗时从发出请求到读完响应体为止
+ */
+@Slf4j
+public class SkyClient {
+
+    //最多打印的失败请求数，避免失败时日志刷屏
+    private static final int MAX_LOGGED_FAILURES = 20;
+
+    private static final AtomicInteger LOGGED_FAILURES = new AtomicInteger();
+
+    private final CloseableHttpClient httpClient;
+
+    private final String baseUrl;
+
+    private final LatencyRecorder recorder;
+
+    private String tokenName;
+
+    private String token;
+
+    public SkyClient(CloseableHttpClient httpClient, String baseUrl, LatencyRecorder recorder) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+    }
+
+    /**
+     * 设置登录后的令牌
+     * @param tokenName 令牌的请求头名称
+     * @param token
+     */
+    public void setToken(String tokenName, String token) {
+        this.tokenName = tokenName;
+        this.token = token;
+    }
+
+    /**
+     * GET请求
+     * @param path
+     * @param params 查询参数，依次为参数名和参数值
+     * @return
+     */
+    public Response get(String path, Object... params) {
+        return execute(new HttpGet(uri(path, params)), path);
+    }
+
+    /**
+     * 带请求头的GET请求
+     * @param path
+     * @param headers
+     * @return
+     */
+    public Response getWithHeaders(String path, Header... headers) {
+        HttpGet httpGet = new HttpGet(uri(path));
+        for (Header header : headers) {
+            httpGet.addHeader(header);
+        }
+        return execute(httpGet, path);
+    }
+
+    /**
+     * 以json格式提交请求体的POST请求
+     * @param path
+     * @param body 请求体对象，字符串原样发送
+     * @return
+     */
+    public Response post(String path, Object body) {
+        return execute(withBody(new HttpPost(uri(path)), body), path);
+    }
+
+    /**
+     * 以json格式提交请求体的PUT请求
+     * @param path
+     * @param body
+     * @return
+     */
+    public Response put(String path, Object body) {
+        return execute(withBody(new HttpPut(uri(path)), body), path);
+    }
+
+    /**
+     * DELETE请求
+     * @param path
+     * @return
+     */
+    public Response delete(String path) {
+        return execute(new HttpDelete(uri(path)), path);
+    }
+
+    private Response execute(HttpRequestBase request, String path) {
+        if (token != null) {
+            request.setHeader(tokenName, token);
+        }
+        //路径中的id归为同一个接口统计
+        String endpoint = request.getMethod() + " " + path.replaceAll("/\\d+(?=/|$)", "/{id}");
+
+        long start = System.nanoTime();
+        Response response;
+        try (CloseableHttpResponse httpResponse = httpClient.execute(request)) {
+            HttpEntity entity = httpResponse.getEntity();
+            byte[] body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+            ContentType contentType = entity == null ? null : ContentType.get(entity);
+            Header etag = httpResponse.getFirstHeader("ETag");
+            response = new Response(httpResponse.getStatusLine().getStatusCode(), body,
+                    contentType != null && contentType.getMimeType().contains("json"),
+                    etag == null ? null : etag.getValue());
+        } catch (IOException e) {
+            response = new Response(-1, e.toString().getBytes(StandardCharsets.UTF_8), false, null);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        boolean success = response.isSuccess();
+        recorder.record(endpoint, elapsed, success);
+        if (!success && LOGGED_FAILURES.incrementAndGet() <= MAX_LOGGED_FAILURES) {
+            log.warn("请求失败：{}，状态码：{}，响应：{}", endpoint, response.getStatus(), response.getBodyPreview());
+        }
+        return response;
+    }
+
+    private String uri(String path, Object... params) {
+        try {
+            URIBuilder builder = new URIBuilder(baseUrl + path);
+            for (int i = 0; i + 1 < params.length; i += 2) {
+                builder.addParameter(String.valueOf(params[i]), String.valueOf(params[i + 1]));
+            }
+            return builder.build().toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(path, e);
+        }
+    }
+
+    private static HttpEntityEnclosingRequestBase withBody(HttpEntityEnclosingRequestBase request, Object body) {
+        String json = body instanceof String ? (String) body : JSON.toJSONString(body);
+        request.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return request;
+    }
+
+    /**
+     * 响应结果
+     */
+    public static class Response {
+
+        private final int status;
+
+        private final byte[] body;
+
+        private final boolean json;
+
+        private final String etag;
+
+        private JSONObject jsonObject;
+
+        Response(int status, byte[] body, boolean json, String etag) {
+            this.status = status;
+            this.body = body;
+            this.json = json;
+            this.etag = etag;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * 响应体解析成的json对象
+         * @return
+         */
+        public JSONObject json() {
+            if (jsonObject == null) {
+                jsonObject = JSON.parseObject(new String(body, StandardCharsets.UTF_8));
+            }
+            return jsonObject;
+        }
+
+        /**
+         * Result中的data
+         * @return
+         */
+        public Object data() {
+            return json().get("data");
+        }
+
+        /**
+         * http状态码为2xx或304，并且json响应中的code表示成功
+         * @return
+         */
+        public boolean isSuccess() {
+            if (status == 304) {
+                return true;
+            }
+            if (status < 200 || status >= 300) {
+                return false;
+            }
+            if (!json || body.length == 0) {
+                return true;
+            }
+            Object code = json().get("code");
+            //Result的code为1表示成功，支付回调的应答为SUCCESS
+            return code == null || "1".equals(code.toString()) || "SUCCESS".equals(code.toString());
+        }
+
+        String getBodyPreview() {
+            String text = new String(body, StandardCharsets.UTF_8);
+            return text.length() > 200 ? text.substring(0, 200) + "..." : text;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.sky.loadtest.report;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.sky.loadtest.LoadTestOptions;
+import com.sky.loadtest.client.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 压测结果：每个接口的请求数、失败数、吞吐量和p50/p99延迟，输出到控制台并写入json文件
+ */
+public class LoadTestReport {
+
+    private final JSONObject result = new JSONObject(true);
+
+    public LoadTestReport(LatencyRecorder recorder, LoadTestOptions options, Map<String, Long> stubCalls) {
+        double seconds = recorder.getElapsedSeconds();
+
+        JSONObject settings = new JSONObject(true);
+        settings.put("warmupSeconds", options.getWarmupSeconds());
+        settings.put("durationSeconds", options.getDurationSeconds());
+        settings.put("users", options.getUsers());
+        settings.put("admins", options.getAdmins());
+        settings.put("thinkMillis", options.getThinkMillis());
+        settings.put("submitRatio", options.getSubmitRatio());
+        settings.put("adminPollMillis", options.getAdminPollMillis());
+        settings.put("exportEvery", options.getExportEvery());
+        settings.put("stubLatencyMillis", options.getStubLatencyMillis());
+
+        JSONArray endpoints = new JSONArray();
+        recorder.getStats().forEach((endpoint, stats) -> endpoints.add(toJson(endpoint, stats, seconds)));
+
+        result.put("time", LocalDateTime.now().toString());
+        result.put("options", settings);
+        result.put("elapsedSeconds", round(seconds));
+        result.put("total", toJson("TOTAL", recorder.getTotal(), seconds));
+        result.put("endpoints", endpoints);
+        result.put("stubCalls", stubCalls);
+    }
+
+    /**
+     * 以表格形式输出到控制台
+     * @return
+     */
+    public String toTable() {
+        StringBuilder table = new StringBuilder();
+        String format = "%-44s %9s %7s %10s %9s %9s %9s%n";
+        table.append(String.format(format, "endpoint", "requests", "errors", "req/s", "p50(ms)", "p99(ms)", "max(ms)"));
+        JSONArray endpoints = result.getJSONArray("endpoints");
+        for (int i = 0; i < endpoints.size(); i++) {
+            appendRow(table, format, endpoints.getJSONObject(i));
+        }
+        appendRow(table, format, result.getJSONObject("total"));
+        table.append(String.format("统计时长%.1f秒，外部接口替身调用次数：%s%n", result.getDouble("elapsedSeconds"), result.get("stubCalls")));
+        return table.toString();
+    }
+
+    /**
+     * 写入json文件，便于不同版本之间对比
+     * @param file
+     * @return 文件的绝对路径
+     * @throws IOException
+     */
+    public Path write(String file) throws IOException {
+        Path path = Paths.get(file).toAbsolutePath();
+        Files.write(path, JSON.toJSONString(result, SerializerFeature.PrettyFormat).getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static void appendRow(StringBuilder table, String format, JSONObject row) {
+        table.append(String.format(format, row.getString("endpoint"), row.getLong("requests"), row.getLong("errors"),
+                row.getDouble("throughput"), row.getDouble("p50Ms"), row.getDouble("p99Ms"), row.getDouble("maxMs")));
+    }
+
+    private static JSONObject toJson(String endpoint, LatencyRecorder.EndpointStats stats, double seconds) {
+        Histogram histogram = stats.getHistogram();
+        JSONObject row = new JSONObject(true);
+        row.put("endpoint", endpoint);
+        row.put("requests", histogram.getTotalCount());
+        row.put("errors", stats.getErrors().sum());
+        row.put("throughput", round(seconds > 0 ? histogram.getTotalCount() / seconds : 0));
+        row.put("meanMs", round(histogram.getMean() / 1000));
+        row.put("p50Ms", millis(histogram, 50));
+        row.put("p90Ms", millis(histogram, 90));
+        row.put("p99Ms", millis(histogram, 99));
+        row.put("maxMs", round(histogram.getMaxValue() / 1000.0));
+        return row;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return round(histogram.getValueAtPercentile(percentile) / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
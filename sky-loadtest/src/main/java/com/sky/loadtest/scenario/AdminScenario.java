@@ -0,0 +1,153 @@
+package com.sky.loadtest.scenario;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.entity.Orders;
+import com.sky.loadtest.LoadTestOptions;
+import com.sky.loadtest.client.SkyClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 管理端虚拟用户：定时轮询工作台和订单列表，依次接单、派送、完成订单，定期查看报表和导出运营数据
+ */
+@Slf4j
+public class AdminScenario implements Runnable {
+
+    private static final String TOKEN_NAME = "token";
+
+    //每次轮询最多处理的订单数
+    private static final int BATCH_SIZE = 5;
+
+    //每轮询多少次查看一次报表
+    private static final int REPORT_EVERY = 10;
+
+    private final SkyClient client;
+
+    private final int adminNo;
+
+    private final LoadTestOptions options;
+
+    private final AtomicBoolean running;
+
+    private int iteration;
+
+    public AdminScenario(SkyClient client, int adminNo, LoadTestOptions options, AtomicBoolean running) {
+        this.client = client;
+        this.adminNo = adminNo;
+        this.options = options;
+        this.running = running;
+    }
+
+    @Override
+    public void run() {
+        try {
+            login();
+        } catch (RuntimeException e) {
+            log.error("管理员{}登录失败，退出压测", adminNo, e);
+            return;
+        }
+
+        while (running.get()) {
+            try {
+                pollBoard();
+                if (iteration % REPORT_EVERY == 0) {
+                    viewReports();
+                }
+                if (options.getExportEvery() > 0 && iteration % options.getExportEvery() == options.getExportEvery() - 1) {
+                    export();
+                }
+                iteration++;
+            } catch (RuntimeException e) {
+                log.debug("管理员{}第{}轮请求异常", adminNo, iteration, e);
+            }
+            sleep(options.getAdminPollMillis());
+        }
+    }
+
+    /**
+     * 员工登录并开始营业
+     */
+    private void login() {
+        Map<String, Object> loginDTO = new HashMap<>();
+        loginDTO.put("username", "admin");
+        loginDTO.put("password", "123456");
+        JSONObject employee = (JSONObject) client.post("/admin/employee/login", loginDTO).data();
+        client.setToken(TOKEN_NAME, employee.getString("token"));
+        client.put("/admin/shop/1", "");
+    }
+
+    /**
+     * 工作台数据和订单处理：待接单的接单，已接单的派送，派送中的完成
+     */
+    private void pollBoard() {
+        client.get("/admin/workspace/businessData");
+        client.get("/admin/workspace/overviewOrders");
+        client.get("/admin/order/statistics");
+
+        for (JSONObject orders : search(Orders.TO_BE_CONFIRMED)) {
+            Map<String, Object> confirmDTO = new HashMap<>();
+            confirmDTO.put("id", orders.getLong("id"));
+            confirmDTO.put("status", Orders.CONFIRMED);
+            client.put("/admin/order/confirm", confirmDTO);
+        }
+        for (JSONObject orders : search(Orders.CONFIRMED)) {
+            client.put("/admin/order/delivery/" + orders.getLong("id"), "");
+        }
+        for (JSONObject orders : search(Orders.DELIVERY_IN_PROGRESS)) {
+            client.put("/admin/order/complete/" + orders.getLong("id"), "");
+        }
+    }
+
+    /**
+     * 查询指定状态的订单第一页
+     * @param status
+     * @return
+     */
+    private List<JSONObject> search(Integer status) {
+        JSONObject page = (JSONObject) client.get("/admin/order/conditionSearch",
+                "page", 1, "pageSize", BATCH_SIZE, "status", status).data();
+        JSONArray records = page == null ? null : page.getJSONArray("records");
+        return records == null ? Collections.<JSONObject>emptyList() : records.toJavaList(JSONObject.class);
+    }
+
+    /**
+     * 最近30天的统计报表
+     */
+    private void viewReports() {
+        LocalDate end = LocalDate.now();
+        LocalDate begin = end.minusDays(29);
+        client.get("/admin/report/turnoverStatistics", "begin", begin, "end", end);
+        client.get("/admin/report/userStatistics", "begin", begin, "end", end);
+        client.get("/admin/report/ordersStatistics", "begin", begin, "end", end);
+        client.get("/admin/report/top10", "begin", begin, "end", end);
+    }
+
+    /**
+     * 导出运营数据报表，交替导出最近30天的汇总和最近7天带订单明细的报表
+     */
+    private void export() {
+        if ((iteration / options.getExportEvery()) % 2 == 0) {
+            client.get("/admin/report/export");
+        } else {
+            LocalDate end = LocalDate.now();
+            client.get("/admin/report/export", "begin", end.minusDays(6), "end", end, "detail", true);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.sky.loadtest.scenario;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.loadtest.LoadTestOptions;
+import com.sky.loadtest.client.SkyClient;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.message.BasicHeader;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 用户端虚拟用户：登录后反复浏览菜单、加减购物车，按比例提交订单并完成支付回调，其余清空购物车离开
+ */
+@Slf4j
+public class CustomerScenario implements Runnable {
+
+    private static final String TOKEN_NAME = "authentication";
+
+    private static final String DISH_FLAVOR = "微辣,不要香菜";
+
+    //配送费
+    private static final BigDecimal DELIVERY_FEE = new BigDecimal(6);
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final SkyClient client;
+
+    private final int userNo;
+
+    private final LoadTestOptions options;
+
+    private final String apiV3Key;
+
+    private final AtomicBoolean running;
+
+    private Long addressBookId;
+
+    //上一次拿到的菜单快照ETag，再次请求时带上，未变化时返回304
+    private String menuEtag;
+
+    private int iteration;
+
+    public CustomerScenario(SkyClient client, int userNo, LoadTestOptions options, String apiV3Key, AtomicBoolean running) {
+        this.client = client;
+        this.userNo = userNo;
+        this.options = options;
+        this.apiV3Key = apiV3Key;
+        this.running = running;
+    }
+
+    @Override
+    public void run() {
+        try {
+            login();
+        } catch (RuntimeException e) {
+            log.error("用户{}登录失败，退出压测", userNo, e);
+            return;
+        }
+
+        while (running.get()) {
+            try {
+                List<JSONObject> dishes = browse();
+                tapCart(dishes);
+                if (ThreadLocalRandom.current().nextDouble() < options.getSubmitRatio()) {
+                    submitAndPay();
+                } else {
+                    client.delete("/user/shoppingCart/clean");
+                    pause();
+                }
+                iteration++;
+            } catch (RuntimeException e) {
+                //单轮失败不影响后续请求，失败的请求已经记录
+                log.debug("用户{}第{}轮请求异常", userNo, iteration, e);
+            }
+        }
+    }
+
+    /**
+     * 微信登录并准备默认收货地址
+     */
+    private void login() {
+        Map<String, Object> loginDTO = new HashMap<>();
+        loginDTO.put("code", "loadtest-" + userNo);
+        JSONObject user = (JSONObject) client.post("/user/user/login", loginDTO).data();
+        client.setToken(TOKEN_NAME, user.getString("token"));
+
+        JSONArray addressBooks = (JSONArray) client.get("/user/addressBook/list").data();
+        if (addressBooks.isEmpty()) {
+            Map<String, Object> newAddress = new HashMap<>();
+            newAddress.put("consignee", "压测用户" + userNo);
+            newAddress.put("sex", "1");
+            newAddress.put("phone", "13800000000");
+            newAddress.put("provinceCode", "32");
+            newAddress.put("provinceName", "江苏省");
+            newAddress.put("cityCode", "3201");
+            newAddress.put("cityName", "南京市");
+            newAddress.put("districtCode", "320113");
+            newAddress.put("districtName", "栖霞区");
+            newAddress.put("detail", "仙林大道" + (userNo % 200) + "号");
+            newAddress.put("label", "公司");
+            client.post("/user/addressBook", newAddress);
+            addressBooks = (JSONArray) client.get("/user/addressBook/list").data();
+        }
+
+        JSONObject addressBook = addressBooks.getJSONObject(0);
+        if (addressBook.getInteger("isDefault") == null || addressBook.getInteger("isDefault") != 1) {
+            Map<String, Object> defaultAddress = new HashMap<>();
+            defaultAddress.put("id", addressBook.getLong("id"));
+            client.put("/user/addressBook/default", defaultAddress);
+        }
+        addressBookId = addressBook.getLong("id");
+    }
+
+    /**
+     * 浏览菜单：店铺状态、分类、两个菜品分类、一个套餐分类和菜单快照
+     * @return 浏览到的菜品
+     */
+    private List<JSONObject> browse() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        client.get("/user/shop/status");
+        pause();
+
+        JSONArray categories = (JSONArray) client.get("/user/category/list").data();
+        pause();
+        List<Long> dishCategoryIds = new ArrayList<>();
+        List<Long> setmealCategoryIds = new ArrayList<>();
+        for (int i = 0; i < categories.size(); i++) {
+            JSONObject category = categories.getJSONObject(i);
+            (category.getInteger("type") == 1 ? dishCategoryIds : setmealCategoryIds).add(category.getLong("id"));
+        }
+
+        List<JSONObject> dishes = new ArrayList<>();
+        for (int i = 0; i < 2 && !dishCategoryIds.isEmpty(); i++) {
+            Long categoryId = dishCategoryIds.get(random.nextInt(dishCategoryIds.size()));
+            JSONArray list = (JSONArray) client.get("/user/dish/list", "categoryId", categoryId).data();
+            for (int j = 0; j < list.size(); j++) {
+                dishes.add(list.getJSONObject(j));
+            }
+            pause();
+        }
+
+        if (!setmealCategoryIds.isEmpty()) {
+            Long categoryId = setmealCategoryIds.get(random.nextInt(setmealCategoryIds.size()));
+            JSONArray setmeals = (JSONArray) client.get("/user/setmeal/list", "categoryId", categoryId).data();
+            pause();
+            if (!setmeals.isEmpty()) {
+                client.get("/user/setmeal/dish/" + setmeals.getJSONObject(random.nextInt(setmeals.size())).getLong("id"));
+                pause();
+            }
+        }
+
+        SkyClient.Response snapshot = menuEtag == null
+                ? client.getWithHeaders("/user/menu/snapshot")
+                : client.getWithHeaders("/user/menu/snapshot", new BasicHeader("If-None-Match", menuEtag));
+        if (snapshot.getEtag() != null) {
+            menuEtag = snapshot.getEtag();
+        }
+        pause();
+        return dishes;
+    }
+
+    /**
+     * 加减购物车：加入2到4个菜品，再减掉第一个，最后查看购物车
+     * @param dishes
+     */
+    private void tapCart(List<JSONObject> dishes) {
+        if (dishes.isEmpty()) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int taps = 2 + random.nextInt(3);
+        Map<String, Object> first = null;
+        for (int i = 0; i < taps; i++) {
+            Map<String, Object> cart = new HashMap<>();
+            cart.put("dishId", dishes.get(random.nextInt(dishes.size())).getLong("id"));
+            cart.put("dishFlavor", DISH_FLAVOR);
+            client.post("/user/shoppingCart/add", cart);
+            if (first == null) {
+                first = cart;
+            }
+            pause();
+        }
+        client.post("/user/shoppingCart/sub", first);
+        pause();
+    }
+
+    /**
+     * 提交订单、发起支付，再模拟微信支付成功回调
+     */
+    private void submitAndPay() {
+        JSONArray cartList = (JSONArray) client.get("/user/shoppingCart/list").data();
+        pause();
+        if (cartList.isEmpty()) {
+            return;
+        }
+        BigDecimal amount = DELIVERY_FEE;
+        for (int i = 0; i < cartList.size(); i++) {
+            JSONObject cart = cartList.getJSONObject(i);
+            amount = amount.add(cart.getBigDecimal("amount").multiply(new BigDecimal(cart.getInteger("number"))));
+        }
+
+        Map<String, Object> submitDTO = new HashMap<>();
+        submitDTO.put("addressBookId", addressBookId);
+        submitDTO.put("payMethod", 1);
+        submitDTO.put("remark", "少放辣");
+        submitDTO.put("estimatedDeliveryTime", LocalDateTime.now().plusMinutes(45).format(TIME_FORMATTER));
+        submitDTO.put("deliveryStatus", 1);
+        submitDTO.put("tablewareNumber", 1);
+        submitDTO.put("tablewareStatus", 1);
+        submitDTO.put("packAmount", cartList.size());
+        submitDTO.put("amount", amount);
+        JSONObject order = (JSONObject) client.post("/user/order/submit", submitDTO).data();
+        pause();
+        if (order == null) {
+            return;
+        }
+        String orderNumber = order.getString("orderNumber");
+
+        Map<String, Object> paymentDTO = new HashMap<>();
+        paymentDTO.put("orderNumber", orderNumber);
+        paymentDTO.put("payMethod", 1);
+        client.put("/user/order/payment", paymentDTO);
+
+        //微信支付后台的回调，不带用户令牌也能访问
+        client.post("/notify/paySuccess", PayNotifications.paySuccess(apiV3Key, orderNumber));
+        pause();
+
+        if (iteration % 5 == 0) {
+            client.get("/user/order/historyOrders", "page", 1, "pageSize", 5);
+            pause();
+        }
+    }
+
+    /**
+     * 两次请求之间的思考时间，在配置值的0.5到1.5倍之间随机
+     */
+    private void pause() {
+        long thinkMillis = options.getThinkMillis();
+        if (thinkMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(thinkMillis / 2 + ThreadLocalRandom.current().nextLong(thinkMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.sky.loadtest.scenario;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 构造微信支付成功回调的报文
+ * 和微信支付一样使用APIv3密钥以AEAD_AES_256_GCM加密订单信息，PayNotifyController用同一个密钥解密
+ */
+public class PayNotifications {
+
+    private static final String ASSOCIATED_DATA = "transaction";
+
+    /**
+     * 支付成功回调的请求体
+     * @param apiV3Key APIv3密钥，32个字符
+     * @param orderNumber 商户订单号
+     * @return
+     */
+    public static String paySuccess(String apiV3Key, String orderNumber) {
+        JSONObject transaction = new JSONObject();
+        transaction.put("out_trade_no", orderNumber);
+        transaction.put("transaction_id", "42000" + orderNumber);
+        transaction.put("trade_state", "SUCCESS");
+
+        //nonce为12个字符
+        String nonce = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+
+        JSONObject resource = new JSONObject();
+        resource.put("algorithm", "AEAD_AES_256_GCM");
+        resource.put("original_type", "transaction");
+        resource.put("associated_data", ASSOCIATED_DATA);
+        resource.put("nonce", nonce);
+        resource.put("ciphertext", encrypt(apiV3Key, nonce, transaction.toJSONString()));
+
+        JSONObject notification = new JSONObject();
+        notification.put("id", UUID.randomUUID().toString());
+        notification.put("event_type", "TRANSACTION.SUCCESS");
+        notification.put("resource_type", "encrypt-resource");
+        notification.put("resource", resource);
+        return JSON.toJSONString(notification);
+    }
+
+    private static String encrypt(String apiV3Key, String nonce, String plainText) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE,
+                    new SecretKeySpec(apiV3Key.getBytes(StandardCharsets.UTF_8), "AES"),
+                    new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8)));
+            cipher.updateAAD(ASSOCIATED_DATA.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("支付回调报文加密失败", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.sky.loadtest.standin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 百度地图和微信登录接口的本地替身
+ * 返回固定的成功结果，并按配置的延迟模拟外部接口的网络耗时，记录每个接口被调用的次数
+ */
+@Slf4j
+public class StubApiServer {
+
+    //地址解析接口，返回固定坐标
+    public static final String GEOCODING = "/geocoding/v3";
+
+    //驾车路线规划接口，返回配送范围内的距离
+    public static final String DRIVING = "/directionlite/v1/driving";
+
+    //小程序登录接口，openid由登录码得到，同一个登录码始终是同一个用户
+    public static final String WX_LOGIN = "/sns/jscode2session";
+
+    private final long latencyMillis;
+
+    private final Map<String, LongAdder> callCounts = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public StubApiServer(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * 在随机端口上启动
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub(GEOCODING, query -> "{\"status\":0,\"result\":{\"location\":{\"lng\":118.913,\"lat\":32.106}}}");
+        stub(DRIVING, query -> "{\"status\":0,\"result\":{\"routes\":[{\"distance\":1800,\"duration\":600}]}}");
+        stub(WX_LOGIN, query -> "{\"openid\":\"openid-" + query.getOrDefault("js_code", "") + "\",\"session_key\":\"stub\"}");
+
+        executor = Executors.newFixedThreadPool(16);
+        server.setExecutor(executor);
+        server.start();
+        log.info("外部接口替身已启动：{}", getBaseUrl());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 各接口被调用的次数
+     * @return
+     */
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        callCounts.forEach((path, count) -> counts.put(path, count.sum()));
+        return counts;
+    }
+
+    private void stub(String path, Function<Map<String, String>, String> responder) {
+        LongAdder count = callCounts.computeIfAbsent(path, x -> new LongAdder());
+        server.createContext(path, exchange -> {
+            count.increment();
+            try {
+                if (latencyMillis > 0) {
+                    TimeUnit.MILLISECONDS.sleep(latencyMillis);
+                }
+                byte[] body = responder.apply(parseQuery(exchange)).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, index), "UTF-8"),
+                        URLDecoder.decode(pair.substring(index + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,68 @@
+-- 压测的初始数据：管理员、菜单，以及最近30天的历史订单，使报表和导出有真实的数据量
+
+-- 管理员 admin / 123456
+insert into employee (id, name, username, password, phone, sex, id_number, status, create_time, update_time, create_user, update_user)
+values (1, '管理员', 'admin', 'e10adc3949ba59abbe56e057f20f883e', '13812312312', '1', '110101199001010047', 1,
+        localtimestamp, localtimestamp, 1, 1);
+
+-- 分类：1-6为菜品分类，7-8为套餐分类
+insert into category (id, type, name, sort, status, create_time, update_time, create_user, update_user)
+select x, case when x <= 6 then 1 else 2 end, concat('分类', x), x, 1, localtimestamp, localtimestamp, 1, 1
+from system_range(1, 8);
+
+-- 菜品：每个菜品分类8个菜品，每个菜品2个口味
+insert into dish (id, name, category_id, price, image, description, status, create_time, update_time, create_user, update_user)
+select x, concat('菜品', x), mod(x - 1, 6) + 1, 18 + mod(x, 7) * 6,
+       concat('https://sky-take-out.oss-cn-hangzhou.aliyuncs.com/dish/', x, '.png'),
+       '鲜鱼片配秘制红油，麻辣鲜香', 1, localtimestamp, localtimestamp, 1, 1
+from system_range(1, 48);
+
+insert into dish_flavor (dish_id, name, value)
+select x, '辣度', '["不辣","微辣","中辣","重辣"]' from system_range(1, 48);
+insert into dish_flavor (dish_id, name, value)
+select x, '忌口', '["不要葱","不要蒜","不要香菜","不要辣"]' from system_range(1, 48);
+
+-- 套餐：每个套餐分类4个套餐，每个套餐3个菜品
+insert into setmeal (id, category_id, name, price, status, description, image, create_time, update_time, create_user, update_user)
+select x, 7 + mod(x - 1, 2), concat('套餐', x), 88 + x * 4, 1, '超值双人套餐',
+       concat('https://sky-take-out.oss-cn-hangzhou.aliyuncs.com/setmeal/', x, '.png'),
+       localtimestamp, localtimestamp, 1, 1
+from system_range(1, 8);
+
+insert into setmeal_dish (setmeal_id, dish_id, name, price, copies)
+select s.x, d.id, d.name, d.price, 1
+from system_range(1, 8) s
+         join dish d on d.id in (s.x, s.x + 8, s.x + 16);
+
+-- 历史用户和最近30天的历史订单，每单2个菜品，状态大部分为已完成
+insert into user (id, openid, name, create_time)
+select x, concat('history-openid-', x), concat('历史用户', x), dateadd('MINUTE', -x * 90, localtimestamp)
+from system_range(1, 500);
+
+insert into address_book (id, user_id, consignee, sex, phone, province_name, city_name, district_name, detail, label, is_default)
+select x, x, concat('历史用户', x), '1', '13812345678', '江苏省', '南京市', '栖霞区', '仙林大道163号', '公司', 1
+from system_range(1, 500);
+
+insert into orders (id, number, status, user_id, address_book_id, order_time, checkout_time, pay_method, pay_status,
+                    amount, remark, phone, address, consignee, estimated_delivery_time, delivery_status, delivery_time,
+                    pack_amount, tableware_number, tableware_status)
+select x, concat('H', x), case when mod(x, 10) = 0 then 6 else 5 end, mod(x - 1, 500) + 1, mod(x - 1, 500) + 1,
+       dateadd('MINUTE', -x * 7, localtimestamp), dateadd('MINUTE', -x * 7 + 1, localtimestamp), 1, 1,
+       case when mod(x, 10) = 0 then 0 else 96 end, '少放辣', '13812345678', '江苏省南京市栖霞区仙林大道163号',
+       concat('历史用户', mod(x - 1, 500) + 1), dateadd('MINUTE', -x * 7 + 45, localtimestamp), 1,
+       dateadd('MINUTE', -x * 7 + 40, localtimestamp), 2, 2, 0
+from system_range(1, 6000);
+
+insert into order_detail (name, image, order_id, dish_id, dish_flavor, number, amount)
+select d.name, d.image, o.x, d.id, '微辣,不要香菜', 1, 48
+from system_range(1, 6000) o
+         join dish d on d.id in (mod(o.x, 48) + 1, mod(o.x + 17, 48) + 1);
+
+-- 自增主键从种子数据之后开始
+alter table employee alter column id restart with 100;
+alter table category alter column id restart with 100;
+alter table dish alter column id restart with 100;
+alter table setmeal alter column id restart with 100;
+alter table user alter column id restart with 1000;
+alter table address_book alter column id restart with 1000;
+alter table orders alter column id restart with 10000;
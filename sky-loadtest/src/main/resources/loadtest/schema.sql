@@ -0,0 +1,182 @@
+-- 压测使用的表结构，H2 MySQL模式，字段和线上sky_take_out库一致
+
+create table if not exists employee
+(
+    id          bigint auto_increment primary key,
+    name        varchar(32)  not null,
+    username    varchar(32)  not null unique,
+    password    varchar(64)  not null,
+    phone       varchar(11)  not null,
+    sex         varchar(2)   not null,
+    id_number   varchar(18)  not null,
+    status      int          not null default 1,
+    create_time datetime,
+    update_time datetime,
+    create_user bigint,
+    update_user bigint
+);
+
+create table if not exists category
+(
+    id          bigint auto_increment primary key,
+    type        int,
+    name        varchar(32) not null unique,
+    sort        int         not null default 0,
+    status      int,
+    create_time datetime,
+    update_time datetime,
+    create_user bigint,
+    update_user bigint
+);
+
+create table if not exists dish
+(
+    id          bigint auto_increment primary key,
+    name        varchar(32) not null unique,
+    category_id bigint      not null,
+    price       decimal(10, 2),
+    image       varchar(255),
+    description varchar(255),
+    status      int default 1,
+    create_time datetime,
+    update_time datetime,
+    create_user bigint,
+    update_user bigint
+);
+
+create table if not exists dish_flavor
+(
+    id      bigint auto_increment primary key,
+    dish_id bigint not null,
+    name    varchar(32),
+    value   varchar(255)
+);
+create index if not exists idx_dish_flavor_dish_id on dish_flavor (dish_id);
+
+create table if not exists setmeal
+(
+    id          bigint auto_increment primary key,
+    category_id bigint      not null,
+    name        varchar(32) not null unique,
+    price       decimal(10, 2) not null,
+    status      int default 1,
+    description varchar(255),
+    image       varchar(255),
+    create_time datetime,
+    update_time datetime,
+    create_user bigint,
+    update_user bigint
+);
+
+create table if not exists setmeal_dish
+(
+    id         bigint auto_increment primary key,
+    setmeal_id bigint,
+    dish_id    bigint,
+    name       varchar(32),
+    price      decimal(10, 2),
+    copies     int
+);
+create index if not exists idx_setmeal_dish_setmeal_id on setmeal_dish (setmeal_id);
+
+create table if not exists user
+(
+    id          bigint auto_increment primary key,
+    openid      varchar(45),
+    name        varchar(32),
+    phone       varchar(11),
+    sex         varchar(2),
+    id_number   varchar(18),
+    avatar      varchar(500),
+    create_time datetime
+);
+create index if not exists idx_user_openid on user (openid);
+
+create table if not exists address_book
+(
+    id            bigint auto_increment primary key,
+    user_id       bigint      not null,
+    consignee     varchar(50),
+    sex           varchar(2),
+    phone         varchar(11) not null,
+    province_code varchar(12),
+    province_name varchar(32),
+    city_code     varchar(12),
+    city_name     varchar(32),
+    district_code varchar(12),
+    district_name varchar(32),
+    detail        varchar(200),
+    label         varchar(100),
+    is_default    tinyint     not null default 0
+);
+
+create table if not exists shopping_cart
+(
+    id          bigint auto_increment primary key,
+    name        varchar(32),
+    image       varchar(255),
+    user_id     bigint         not null,
+    dish_id     bigint,
+    setmeal_id  bigint,
+    dish_flavor varchar(50),
+    number      int            not null default 1,
+    amount      decimal(10, 2) not null,
+    create_time datetime
+);
+create index if not exists idx_shopping_cart_user_id on shopping_cart (user_id);
+
+create table if not exists orders
+(
+    id                      bigint auto_increment primary key,
+    number                  varchar(50),
+    status                  int            not null default 1,
+    user_id                 bigint         not null,
+    address_book_id         bigint         not null,
+    order_time              datetime       not null,
+    checkout_time           datetime,
+    pay_method              int            not null default 1,
+    pay_status              tinyint        not null default 0,
+    amount                  decimal(10, 2) not null,
+    remark                  varchar(100),
+    phone                   varchar(11),
+    address                 varchar(255),
+    user_name               varchar(32),
+    consignee               varchar(32),
+    cancel_reason           varchar(255),
+    rejection_reason        varchar(255),
+    cancel_time             datetime,
+    estimated_delivery_time datetime,
+    delivery_status         tinyint        not null default 1,
+    delivery_time           datetime,
+    pack_amount             int,
+    tableware_number        int,
+    tableware_status        tinyint        not null default 1
+);
+create index if not exists idx_orders_number on orders (number);
+create index if not exists idx_orders_user_id on orders (user_id);
+create index if not exists idx_orders_status_order_time on orders (status, order_time);
+create index if not exists idx_orders_order_time on orders (order_time);
+
+create table if not exists order_detail
+(
+    id          bigint auto_increment primary key,
+    name        varchar(32),
+    image       varchar(255),
+    order_id    bigint         not null,
+    dish_id     bigint,
+    setmeal_id  bigint,
+    dish_flavor varchar(50),
+    number      int            not null default 1,
+    amount      decimal(10, 2) not null
+);
+create index if not exists idx_order_detail_order_id on order_detail (order_id);
+
+create table if not exists business_daily_stats
+(
+    stat_date         date           not null primary key,
+    total_order_count int            not null default 0,
+    valid_order_count int            not null default 0,
+    turnover          decimal(12, 2) not null default 0,
+    new_users         int            not null default 0,
+    update_time       datetime
+);
@@ -0,0 +1,18 @@
+package com.sky.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 带有创建、修改时间和创建人、修改人公共字段的实体，由AutoFill切面直接调用setter填充
+ * 实现类的setter由lombok的@Data生成
+ */
+public interface Auditable {
+
+    void setCreateTime(LocalDateTime createTime);
+
+    void setUpdateTime(LocalDateTime updateTime);
+
+    void setCreateUser(Long createUser);
+
+    void setUpdateUser(Long updateUser);
+}
@@ -11,7 +11,7 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Category implements Serializable {
+public class Category implements Serializable, Auditable {
 
     private static final long serialVersionUID = 1L;
 
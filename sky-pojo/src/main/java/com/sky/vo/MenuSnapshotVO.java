@@ -0,0 +1,30 @@
+package com.sky.vo;
+
+import com.sky.entity.Category;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 完整的菜单快照，包含所有启用的分类、起售中的菜品和套餐
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSnapshotVO implements Serializable {
+
+    //启用的分类，按排序字段排列
+    private List<Category> categories;
+
+    //起售中的菜品及口味，key为分类id
+    private Map<Long, List<DishVO>> dishes;
+
+    //起售中的套餐及包含的菜品，key为分类id
+    private Map<Long, List<MenuSetmealVO>> setmeals;
+}
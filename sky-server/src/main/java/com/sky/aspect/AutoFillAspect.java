@@ -3,6 +3,7 @@ package com.sky.aspect;
 import com.sky.annotation.AutoFill;
 import com.sky.constant.AutoFillConstant;
 import com.sky.context.BaseContext;
+import com.sky.entity.Auditable;
 import com.sky.enumeration.OperationType;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
@@ -12,8 +13,11 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 /**
  * AOP,面向切面编程。在不改变源码的条件下增强功能
@@ -24,6 +28,15 @@ import java.time.LocalDateTime;
 @Slf4j
 @Component
 public class AutoFillAspect {
+
+    //每个实体类的公共字段setter，第一次使用时查找后缓存
+    private static final ClassValue<AuditSetters> SETTERS = new ClassValue<AuditSetters>() {
+        @Override
+        protected AuditSetters computeValue(Class<?> type) {
+            return new AuditSetters(type);
+        }
+    };
+
     /**
      * 切入点
      * 在这里，切入点定义为拦截 com.sky.mapper 包及其子包中所有方法，并且这些方法上还要有 @AutoFill 注解。
@@ -33,18 +46,17 @@ public class AutoFillAspect {
 
     /**
      * 前置通知，在通知中进行公共字段的赋值
+     * 参数可以是单个实体，也可以是实体集合（批量插入）
      */
     @Before("autoFillPointCut()")
     public void autoFill(JoinPoint joinPoint){
-        log.info("开始进行公共字段自动填充");
-
         //获取当前被拦截的方法上的数据库操作类型
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();//方法签名对象
         AutoFill autoFill = signature.getMethod().getAnnotation(AutoFill.class);//获得方法上的注解对象
         OperationType operationType = autoFill.value();//获得数据库操作类型，比如时insert还是update，它们对数据库里更改的属性有所不同
         //获取到当前被拦截的方法的参数--实体对象，比如Employee
         Object[] args = joinPoint.getArgs();
-        if (args == null || args.length == 0){
+        if (args == null || args.length == 0 || args[0] == null){
             return;
         }
 
@@ -53,43 +65,84 @@ public class AutoFillAspect {
         //准备赋值数据
         LocalDateTime now = LocalDateTime.now();
         Long currentId = BaseContext.getCurrentId();
+        log.debug("公共字段自动填充：{}，{}", signature.getName(), operationType);
 
-        //根据当前不同的操作类型，为对象的属性通过反射来赋值
-        if (operationType == OperationType.INSERT){
-            //插入操作，为4个公共字段赋值
-            try {
-                //获取实体对象employee或者dish等的set方法
-                Method setCreateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);//通过常量方式引入方法名，防止手敲出错
-                Method setCreateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
-                Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-
-                //通过反射对对象属性赋值，把now和currentId赋值给对象的属性
-                setCreateTime.invoke(entity, now);
-                setCreateUser.invoke(entity, currentId);
-                setUpdateTime.invoke(entity, now);
-                setUpdateUser.invoke(entity, currentId);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        if (entity instanceof Collection) {
+            //批量插入，所有实体使用同一个时间
+            for (Object element : (Collection<?>) entity) {
+                fill(element, operationType, now, currentId);
             }
+        } else {
+            fill(entity, operationType, now, currentId);
+        }
+    }
 
+    /**
+     * 为一个实体的公共字段赋值
+     * 实现了Auditable的实体直接调用setter；其他实体按类缓存setter的MethodHandle，只在第一次使用时查找
+     * @param entity
+     * @param operationType
+     * @param now
+     * @param currentId
+     */
+    private void fill(Object entity, OperationType operationType, LocalDateTime now, Long currentId) {
+        if (entity == null) {
+            return;
+        }
 
-        }else if (operationType == OperationType.UPDATE){
-            //更新操作，为2个公共字段赋值
-            try {
-                //获取实体对象employee或者dish等的set方法
-                Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-
-                //通过反射对对象属性赋值，把now和currentId赋值给对象的属性
-                setUpdateTime.invoke(entity, now);
-                setUpdateUser.invoke(entity, currentId);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        if (entity instanceof Auditable) {
+            Auditable auditable = (Auditable) entity;
+            if (operationType == OperationType.INSERT) {
+                //插入操作，为4个公共字段赋值
+                auditable.setCreateTime(now);
+                auditable.setCreateUser(currentId);
             }
+            //插入和更新操作都要为修改时间和修改人赋值
+            auditable.setUpdateTime(now);
+            auditable.setUpdateUser(currentId);
+            return;
+        }
 
+        AuditSetters setters = SETTERS.get(entity.getClass());
+        try {
+            if (operationType == OperationType.INSERT) {
+                setters.setCreateTime.invoke(entity, now);
+                setters.setCreateUser.invoke(entity, currentId);
+            }
+            setters.setUpdateTime.invoke(entity, now);
+            setters.setUpdateUser.invoke(entity, currentId);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
         }
+    }
 
+    /**
+     * 一个实体类的4个公共字段setter
+     */
+    private static class AuditSetters {
+
+        private final MethodHandle setCreateTime;
+        private final MethodHandle setCreateUser;
+        private final MethodHandle setUpdateTime;
+        private final MethodHandle setUpdateUser;
+
+        AuditSetters(Class<?> type) {
+            //通过常量方式引入方法名，防止手敲出错
+            setCreateTime = find(type, AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+            setCreateUser = find(type, AutoFillConstant.SET_CREATE_USER, Long.class);
+            setUpdateTime = find(type, AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+            setUpdateUser = find(type, AutoFillConstant.SET_UPDATE_USER, Long.class);
+        }
+
+        private static MethodHandle find(Class<?> type, String name, Class<?> parameterType) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findVirtual(type, name, MethodType.methodType(void.class, parameterType))
+                        .asType(MethodType.methodType(void.class, Object.class, parameterType));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalStateException(type.getName() + "缺少公共字段的setter：" + name, e);
+            }
+        }
     }
 
 }
@@ -0,0 +1,38 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 两级缓存中保存的缓存项，除缓存值外记录逻辑过期时间和加载耗时，用于提前刷新
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry implements Serializable {
+
+    //缓存值，为null时表示缓存的是空值
+    private Object value;
+
+    //逻辑过期时间，毫秒时间戳
+    private long expireAt;
+
+    //从数据库加载该值的耗时，单位毫秒
+    private long loadMillis;
+
+    /**
+     * 概率提前刷新（XFetch）：越接近过期、加载越慢，越可能提前刷新，
+     * 热点key会在过期前由某一个请求刷新，而不是过期后所有请求同时回源
+     * @param now 当前时间
+     * @param beta 提前系数，越大越早刷新
+     * @return
+     */
+    public boolean shouldRefresh(long now, double beta) {
+        double random = 1 - ThreadLocalRandom.current().nextDouble(); //(0, 1]
+        return now - Math.max(loadMillis, 1) * beta * Math.log(random) >= expireAt;
+    }
+}
@@ -0,0 +1,82 @@
+package com.sky.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存代数，作为redis缓存key的前缀：缓存名称:代数::key
+ * 清空缓存时只需把代数加1，旧代数下的key不再被访问，由过期时间自动清理，不需要用KEYS查找再删除
+ * 代数保存在redis中，本节点缓存一份，通过失效通知和定时刷新保持同步
+ */
+@Slf4j
+public class CacheGenerations implements CacheKeyPrefix {
+
+    //缓存代数key前缀
+    public static final String KEY_PREFIX = "cache:gen:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final ConcurrentMap<String, Long> generations = new ConcurrentHashMap<>();
+
+    public CacheGenerations(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @Override
+    public String compute(String cacheName) {
+        return cacheName + ":" + getGeneration(cacheName) + "::";
+    }
+
+    /**
+     * 获取缓存当前的代数
+     * @param cacheName
+     * @return
+     */
+    public long getGeneration(String cacheName) {
+        return generations.computeIfAbsent(cacheName, this::load);
+    }
+
+    /**
+     * 代数加1，使该缓存下的所有key失效
+     * @param cacheName
+     * @return 新的代数
+     */
+    public long increment(String cacheName) {
+        Long generation = stringRedisTemplate.opsForValue().increment(KEY_PREFIX + cacheName);
+        update(cacheName, generation);
+        return generation;
+    }
+
+    /**
+     * 更新本节点缓存的代数，代数只增不减
+     * @param cacheName
+     * @param generation
+     */
+    public void update(String cacheName, long generation) {
+        generations.merge(cacheName, generation, Math::max);
+    }
+
+    /**
+     * 每分钟从redis重新读取所有代数，兜底丢失失效通知的情况
+     */
+    @Scheduled(cron = "0 * * * * ?")
+    public void refresh() {
+        for (String cacheName : generations.keySet()) {
+            try {
+                update(cacheName, load(cacheName));
+            } catch (Exception e) {
+                log.warn("刷新缓存代数失败：{}", cacheName, e);
+            }
+        }
+    }
+
+    private long load(String cacheName) {
+        String generation = stringRedisTemplate.opsForValue().get(KEY_PREFIX + cacheName);
+        return generation == null ? 0 : Long.parseLong(generation);
+    }
+}
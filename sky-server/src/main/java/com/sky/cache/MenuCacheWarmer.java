@@ -0,0 +1,51 @@
+package com.sky.cache;
+
+import com.sky.result.Result;
+import com.sky.service.DishService;
+import com.sky.vo.DishVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 菜单缓存预热，启动后一次性加载所有分类的菜品写入dishCache，
+ * 避免冷启动后用户端按分类逐个回源数据库
+ */
+@Component
+@Slf4j
+public class MenuCacheWarmer {
+
+    //与用户端DishController.list的缓存名称一致
+    public static final String DISH_CACHE = "dishCache";
+
+    @Autowired
+    private DishService dishService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * 查询所有起售中的菜品和口味（固定两次查询），按分类写入缓存
+     * 缓存值与用户端DishController.list的返回值一致
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, List<DishVO>> menu = dishService.listEnabledWithFlavorGroupByCategory();
+            Cache cache = cacheManager.getCache(DISH_CACHE);
+            menu.forEach((categoryId, dishVOList) -> cache.put(categoryId, Result.success(dishVOList)));
+            log.info("菜单缓存预热完成，分类{}个，耗时{}ms", menu.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            //预热失败不影响启动，请求时再按需加载
+            log.error("菜单缓存预热失败", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.sky.cache;
+
+import lombok.Getter;
+
+/**
+ * 预先计算好的菜单快照响应：JSON原文、gzip压缩后的内容和内容哈希ETag
+ */
+@Getter
+public class MenuSnapshot {
+
+    //生成快照时的菜单版本，版本变化后快照过期
+    private final long version;
+
+    //生成时间，毫秒时间戳
+    private final long createTime;
+
+    //JSON原文
+    private final byte[] json;
+
+    //gzip压缩后的JSON
+    private final byte[] gzip;
+
+    //内容哈希，弱ETag，压缩与未压缩的响应共用
+    private final String etag;
+
+    public MenuSnapshot(long version, long createTime, byte[] json, byte[] gzip, String etag) {
+        this.version = version;
+        this.createTime = createTime;
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+    }
+
+    /**
+     * 请求头If-None-Match中是否包含当前ETag
+     * @param ifNoneMatch
+     * @return
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            //弱比较，忽略W/前缀
+            if ("*".equals(tag) || etag.equals(tag) || etag.equals("W/" + tag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sky.json.JacksonObjectMapper;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * redis value序列化器
+ * 写入时按配置使用json或二进制的Smile格式，值中带有类型信息，读取时可以还原为原来的类型；
+ * 读取时根据数据头自动识别json、Smile和原来的JDK序列化格式，已有的key不需要迁移，
+ * 重新写入或过期后自然切换为新格式
+ */
+public class RedisValueSerializer implements RedisSerializer<Object> {
+
+    /**
+     * 写入格式
+     */
+    public enum Format {
+        JSON,
+        SMILE
+    }
+
+    //Smile格式的数据头
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+    //JDK序列化格式的数据头
+    private static final byte[] JDK_HEADER = {(byte) 0xAC, (byte) 0xED};
+
+    private final Format format;
+
+    private final ObjectMapper jsonMapper = createMapper(null);
+
+    private final ObjectMapper smileMapper = createMapper(new SmileFactory());
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    public RedisValueSerializer(Format format) {
+        this.format = format;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        //Spring Cache的空值占位对象没有属性，仍使用JDK序列化
+        if (value instanceof NullValue) {
+            return jdkSerializer.serialize(value);
+        }
+        try {
+            return (format == Format.SMILE ? smileMapper : jsonMapper).writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new SerializationException("redis value序列化失败：" + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (startsWith(bytes, JDK_HEADER)) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        try {
+            return (startsWith(bytes, SMILE_HEADER) ? smileMapper : jsonMapper).readValue(bytes, Object.class);
+        } catch (Exception e) {
+            throw new SerializationException("redis value反序列化失败", e);
+        }
+    }
+
+    /**
+     * 基于项目的JacksonObjectMapper创建带类型信息的ObjectMapper，只允许还原项目和JDK中的类型
+     * @param jsonFactory
+     * @return
+     */
+    private static ObjectMapper createMapper(JsonFactory jsonFactory) {
+        ObjectMapper objectMapper = new JacksonObjectMapper(jsonFactory);
+        BasicPolymorphicTypeValidator validator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.sky.")
+                .allowIfSubType("java.lang.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.math.")
+                .allowIfSubType("java.time.")
+                .build();
+        objectMapper.activateDefaultTyping(validator, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return objectMapper;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] header) {
+        if (bytes.length < header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (bytes[i] != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,457 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存，一级为进程内的Caffeine缓存，二级为redis缓存
+ * 查询时依次查询一级、二级缓存，二级缓存命中时回填一级缓存；
+ * 删除时先删除二级缓存，再删除本节点的一级缓存，并通知其他节点删除各自的一级缓存
+ * 清空时不逐个删除redis中的key，而是把缓存代数加1，旧的key由过期时间清理
+ * 通过get(key, valueLoader)加载时（@Cacheable(sync = true)）：
+ * 同一节点内同一个key的并发未命中只加载一次，节点之间通过redis锁保证同一时刻只有一个节点查询数据库，
+ * 其他节点等待锁持有者写入redis后直接读取；热点key在逻辑过期前按概率提前异步刷新，刷新期间继续返回旧值
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    //加载锁key前缀
+    public static final String LOCK_KEY_PREFIX = "cache:lock:";
+
+    //加载锁的过期时间，也是未抢到锁时等待其他节点加载的最长时间，单位毫秒
+    private static final long LOCK_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    //等待其他节点加载时查询redis的间隔，单位毫秒
+    private static final long WAIT_INTERVAL_MILLIS = 50;
+
+    //加载期间缓存被清空时最多加载的次数
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    //提前刷新系数
+    private static final double REFRESH_BETA = 1.0;
+
+    //只删除自己持有的锁
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private final String name;
+
+    private final Cache<String, Object> localCache;
+
+    private final org.springframework.cache.Cache redisCache;
+
+    private final TwoLevelCacheManager cacheManager;
+
+    //缓存项的逻辑过期时长，与redis缓存的过期时间一致，单位毫秒
+    private final long ttlMillis;
+
+    //本节点正在加载的key，同一个key的并发请求共用一次加载
+    private final ConcurrentMap<String, CompletableFuture<Object>> loadingMap = new ConcurrentHashMap<>();
+
+    //一级缓存命中次数
+    private final LongAdder localHitCount = new LongAdder();
+
+    //二级缓存命中次数
+    private final LongAdder redisHitCount = new LongAdder();
+
+    //两级缓存都未命中的次数
+    private final LongAdder missCount = new LongAdder();
+
+    //查询数据库加载的次数
+    private final LongAdder loadCount = new LongAdder();
+
+    //提前刷新的次数
+    private final LongAdder refreshCount = new LongAdder();
+
+    public TwoLevelCache(String name, Cache<String, Object> localCache, org.springframework.cache.Cache redisCache,
+                         TwoLevelCacheManager cacheManager, long ttlMillis) {
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisCache = redisCache;
+        this.cacheManager = cacheManager;
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        CacheEntry entry = lookupEntry(key, toLocalKey(key));
+        return entry == null ? null : toStoreValue(entry.getValue());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = toLocalKey(key);
+        CacheEntry entry = lookupEntry(key, localKey);
+        if (entry != null) {
+            if (entry.shouldRefresh(System.currentTimeMillis(), REFRESH_BETA)) {
+                refreshAsync(key, localKey, entry, valueLoader);
+            }
+            return (T) entry.getValue();
+        }
+        return (T) load(key, localKey, valueLoader).getValue();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, toLocalKey(key), newEntry(value, 0));
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = toLocalKey(key);
+        redisCache.evict(key);
+        localCache.invalidate(localKey);
+        cacheManager.publishInvalidation(name, localKey, null);
+    }
+
+    @Override
+    public void clear() {
+        long generation = cacheManager.getGenerations().increment(name);
+        localCache.invalidateAll();
+        cacheManager.publishInvalidation(name, null, generation);
+    }
+
+    /**
+     * 只删除本节点的一级缓存，收到其他节点的失效通知时调用
+     * @param localKey 为null时清空
+     */
+    public void evictLocal(String localKey) {
+        if (localKey == null) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(localKey);
+        }
+    }
+
+    public long getLocalHitCount() {
+        return localHitCount.sum();
+    }
+
+    public long getRedisHitCount() {
+        return redisHitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    public long getLocalSize() {
+        return localCache.estimatedSize();
+    }
+
+    /**
+     * 依次查询一级、二级缓存
+     * @param key
+     * @param localKey
+     * @return 两级缓存都未命中时返回null
+     */
+    private CacheEntry lookupEntry(Object key, String localKey) {
+        CacheEntry entry = (CacheEntry) localCache.getIfPresent(localKey);
+        if (entry != null) {
+            localHitCount.increment();
+            return entry;
+        }
+
+        entry = getFromRedis(key);
+        if (entry != null) {
+            redisHitCount.increment();
+            localCache.put(localKey, entry);
+            return entry;
+        }
+
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * 两级缓存都未命中时加载，本节点同一个key同时只有一个线程加载，其他线程等待其结果
+     * @param key
+     * @param localKey
+     * @param valueLoader
+     * @return
+     */
+    private CacheEntry load(Object key, String localKey, Callable<?> valueLoader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> loading = loadingMap.putIfAbsent(localKey, future);
+        if (loading != null) {
+            try {
+                return (CacheEntry) loading.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ValueRetrievalException(key, valueLoader, e);
+            } catch (ExecutionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+
+        try {
+            CacheEntry entry = loadWithLock(key, localKey, valueLoader, null);
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingMap.remove(localKey, future);
+        }
+    }
+
+    /**
+     * 在后台线程提前刷新即将过期的缓存项，本节点或其他节点已在刷新时跳过
+     * @param key
+     * @param localKey
+     * @param stale 当前的缓存项
+     * @param valueLoader
+     */
+    private void refreshAsync(Object key, String localKey, CacheEntry stale, Callable<?> valueLoader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (loadingMap.putIfAbsent(localKey, future) != null) {
+            return;
+        }
+        try {
+            cacheManager.getRefreshExecutor().execute(() -> {
+                try {
+                    future.complete(loadWithLock(key, localKey, valueLoader, stale));
+                } catch (RuntimeException e) {
+                    log.warn("提前刷新缓存失败：{}::{}", name, localKey, e);
+                    future.completeExceptionally(e);
+                } finally {
+                    loadingMap.remove(localKey, future);
+                }
+            });
+        } catch (RuntimeException e) {
+            //刷新线程池已满，本次不刷新
+            loadingMap.remove(localKey, future);
+            future.complete(stale);
+        }
+    }
+
+    /**
+     * 抢到redis锁的节点查询数据库并写入两级缓存；未抢到锁时等待锁持有者写入redis，等待超时后自己加载
+     * 加载期间缓存被清空（代数变化）时，查到的可能是清空前的数据，不写入缓存，按新的代数重新加载
+     * @param key
+     * @param localKey
+     * @param valueLoader
+     * @param stale 提前刷新时为当前的缓存项，未抢到锁时直接返回；两级缓存未命中时为null
+     * @return
+     */
+    private CacheEntry loadWithLock(Object key, String localKey, Callable<?> valueLoader, CacheEntry stale) {
+        for (int attempt = 1; ; attempt++) {
+            long generation = cacheManager.getGenerations().getGeneration(name);
+            CacheEntry entry = loadWithLock(key, localKey, valueLoader, stale, generation);
+            if (entry != null) {
+                return entry;
+            }
+            if (attempt >= MAX_LOAD_ATTEMPTS) {
+                //缓存被连续清空，本次查到的数据直接返回，不写入缓存
+                log.warn("加载期间缓存被多次清空，本次结果不写入缓存：{}::{}", name, localKey);
+                return loadWithoutCache(key, valueLoader);
+            }
+            //清空前开始的提前刷新已没有意义，按未命中重新加载
+            stale = null;
+        }
+    }
+
+    /**
+     * 在指定代数下加载一次
+     * @param key
+     * @param localKey
+     * @param valueLoader
+     * @param stale
+     * @param generation 开始加载时的缓存代数
+     * @return 加载期间代数发生变化时返回null
+     */
+    private CacheEntry loadWithLock(Object key, String localKey, Callable<?> valueLoader, CacheEntry stale, long generation) {
+        String lockKey = LOCK_KEY_PREFIX + name + ":" + generation + "::" + localKey;
+        String token = UUID.randomUUID().toString();
+        boolean locked = tryLock(lockKey, token);
+        if (!locked && stale != null) {
+            //其他节点正在刷新
+            return stale;
+        }
+
+        try {
+            if (locked) {
+                //抢到锁之前其他节点可能已经加载完成
+                CacheEntry entry = getFromRedis(key);
+                if (entry != null && (stale == null || entry.getExpireAt() > stale.getExpireAt())) {
+                    return putLocalIfCurrent(localKey, entry, generation);
+                }
+            } else {
+                CacheEntry entry = waitForLoad(key);
+                if (entry != null) {
+                    return putLocalIfCurrent(localKey, entry, generation);
+                }
+                log.warn("等待其他节点加载缓存超时，直接查询数据库：{}::{}", name, localKey);
+            }
+
+            CacheEntry entry = loadWithoutCache(key, valueLoader);
+            if (stale != null) {
+                refreshCount.increment();
+            }
+            if (!isCurrent(generation)) {
+                return null;
+            }
+            put(key, localKey, entry);
+            return entry;
+        } finally {
+            if (locked) {
+                unlock(lockKey, token);
+            }
+        }
+    }
+
+    /**
+     * 查询数据库
+     * @param key
+     * @param valueLoader
+     * @return
+     */
+    private CacheEntry loadWithoutCache(Object key, Callable<?> valueLoader) {
+        long start = System.currentTimeMillis();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        loadCount.increment();
+        return newEntry(value, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 代数未变化时回填一级缓存
+     * @param localKey
+     * @param entry
+     * @param generation
+     * @return 代数已变化时返回null
+     */
+    private CacheEntry putLocalIfCurrent(String localKey, CacheEntry entry, long generation) {
+        if (!isCurrent(generation)) {
+            return null;
+        }
+        localCache.put(localKey, entry);
+        return entry;
+    }
+
+    private boolean isCurrent(long generation) {
+        return cacheManager.getGenerations().getGeneration(name) == generation;
+    }
+
+    /**
+     * 未抢到锁时轮询redis，等待锁持有者写入
+     * @param key
+     * @return 等待超时返回null
+     */
+    private CacheEntry waitForLoad(Object key) {
+        long deadline = System.currentTimeMillis() + LOCK_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(WAIT_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            CacheEntry entry = getFromRedis(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private boolean tryLock(String lockKey, String token) {
+        try {
+            Boolean locked = cacheManager.getStringRedisTemplate().opsForValue()
+                    .setIfAbsent(lockKey, token, LOCK_MILLIS, TimeUnit.MILLISECONDS);
+            return Boolean.TRUE.equals(locked);
+        } catch (Exception e) {
+            //redis不可用时退化为只在本节点内合并请求
+            log.warn("获取缓存加载锁失败：{}", lockKey, e);
+            return true;
+        }
+    }
+
+    private void unlock(String lockKey, String token) {
+        try {
+            StringRedisTemplate stringRedisTemplate = cacheManager.getStringRedisTemplate();
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), token);
+        } catch (Exception e) {
+            //锁到期后自动释放
+            log.warn("释放缓存加载锁失败：{}", lockKey, e);
+        }
+    }
+
+    private void put(Object key, String localKey, CacheEntry entry) {
+        redisCache.put(key, entry);
+        localCache.put(localKey, entry);
+    }
+
+    /**
+     * 读取redis中的缓存项，兼容升级前直接保存缓存值的旧数据
+     * @param key
+     * @return
+     */
+    private CacheEntry getFromRedis(Object key) {
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (value instanceof CacheEntry) {
+            return (CacheEntry) value;
+        }
+        //旧数据没有逻辑过期时间，不提前刷新
+        return new CacheEntry(value == NullValue.INSTANCE ? null : value, Long.MAX_VALUE, 0);
+    }
+
+    private CacheEntry newEntry(Object value, long loadMillis) {
+        return new CacheEntry(value, System.currentTimeMillis() + ttlMillis, loadMillis);
+    }
+
+    /**
+     * 一级缓存的key统一转换为字符串，便于在节点之间传递失效通知
+     * @param key
+     * @return
+     */
+    private String toLocalKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,177 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.metrics.TwoLevelCacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存管理器，为每个缓存名称创建一个TwoLevelCache
+ * 同时负责通过redis pub/sub在节点之间传递一级缓存的失效通知
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    //缓存失效通知使用的redis频道
+    public static final String TOPIC = "sky:cache:invalidate";
+
+    private final CacheManager redisCacheManager;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final CacheGenerations generations;
+
+    //每个一级缓存的最大条数
+    private final long localMaximumSize;
+
+    //一级缓存写入后的过期时间，单位秒，兜底丢失失效通知的情况
+    private final long localExpireSeconds;
+
+    //缓存项的逻辑过期时长，与redis缓存的过期时间一致，单位毫秒
+    private final long ttlMillis;
+
+    //提前刷新缓存使用的线程池
+    private final Executor refreshExecutor;
+
+    //当前节点标识，忽略自己发出的失效通知
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, TwoLevelCache> cacheMap = new ConcurrentHashMap<>();
+
+    //缓存指标注册到的registry，为null时不统计
+    private volatile MeterRegistry meterRegistry;
+
+    public TwoLevelCacheManager(CacheManager redisCacheManager, StringRedisTemplate stringRedisTemplate,
+                                CacheGenerations generations, long localMaximumSize, long localExpireSeconds,
+                                long ttlMillis, Executor refreshExecutor) {
+        this.redisCacheManager = redisCacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.generations = generations;
+        this.localMaximumSize = localMaximumSize;
+        this.localExpireSeconds = localExpireSeconds;
+        this.ttlMillis = ttlMillis;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return cacheMap.computeIfAbsent(name, this::createCache);
+    }
+
+    /**
+     * 创建缓存，缓存在第一次使用时创建，同时注册该缓存的指标
+     * @param name
+     * @return
+     */
+    private TwoLevelCache createCache(String name) {
+        TwoLevelCache cache = new TwoLevelCache(name,
+                Caffeine.newBuilder()
+                        .maximumSize(localMaximumSize)
+                        .expireAfterWrite(localExpireSeconds, TimeUnit.SECONDS)
+                        .build(),
+                redisCacheManager.getCache(name),
+                this,
+                ttlMillis);
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            new TwoLevelCacheMetrics(cache).bindTo(registry);
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(cacheMap.keySet());
+    }
+
+    /**
+     * 已创建的缓存，用于统计命中情况
+     * @return
+     */
+    public Collection<TwoLevelCache> getCaches() {
+        return Collections.unmodifiableCollection(cacheMap.values());
+    }
+
+    public CacheGenerations getGenerations() {
+        return generations;
+    }
+
+    public StringRedisTemplate getStringRedisTemplate() {
+        return stringRedisTemplate;
+    }
+
+    public Executor getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
+    /**
+     * 通知其他节点删除一级缓存
+     * @param cacheName
+     * @param localKey 为null时清空整个缓存
+     * @param generation 清空缓存后的新代数，删除单个key时为null
+     */
+    public void publishInvalidation(String cacheName, String localKey, Long generation) {
+        JSONObject message = new JSONObject();
+        message.put("node", nodeId);
+        message.put("cache", cacheName);
+        message.put("key", localKey);
+        message.put("generation", generation);
+        try {
+            stringRedisTemplate.convertAndSend(TOPIC, message.toJSONString());
+        } catch (Exception e) {
+            //通知失败时其他节点的一级缓存在过期后失效
+            log.error("发布缓存失效通知失败：{}", message, e);
+        }
+    }
+
+    /**
+     * 收到其他节点的失效通知，删除本节点的一级缓存
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        JSONObject jsonObject;
+        try {
+            jsonObject = JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("忽略格式错误的缓存失效通知", e);
+            return;
+        }
+        if (jsonObject == null || nodeId.equals(jsonObject.getString("node"))) {
+            return;
+        }
+
+        String cacheName = jsonObject.getString("cache");
+        Long generation = jsonObject.getLong("generation");
+        if (generation != null) {
+            //先更新代数，之后的读写都使用新代数下的key
+            generations.update(cacheName, generation);
+        }
+
+        TwoLevelCache cache = cacheMap.get(cacheName);
+        if (cache != null) {
+            cache.evictLocal(jsonObject.getString("key"));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.sky.config;
+
+import com.sky.cache.CacheGenerations;
+import com.sky.cache.RedisValueSerializer;
+import com.sky.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+
+/**
+ * Spring Cache配置，使用Caffeine + redis两级缓存
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    /**
+     * 缓存代数，redis缓存key的前缀中带有代数，清空缓存时代数加1
+     */
+    @Bean
+    public CacheGenerations cacheGenerations(StringRedisTemplate stringRedisTemplate){
+        return new CacheGenerations(stringRedisTemplate);
+    }
+
+    /**
+     * 提前刷新缓存的线程池，队列满时放弃刷新，请求继续使用旧值
+     * 关闭应用时等待正在进行的刷新完成
+     */
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor(){
+        ThreadPoolTaskExecutor refreshExecutor = new ThreadPoolTaskExecutor();
+        refreshExecutor.setCorePoolSize(2);
+        refreshExecutor.setMaxPoolSize(2);
+        refreshExecutor.setQueueCapacity(100);
+        refreshExecutor.setThreadNamePrefix("cache-refresh-");
+        refreshExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        refreshExecutor.setAwaitTerminationSeconds(10);
+        return refreshExecutor;
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             CacheGenerations cacheGenerations,
+                                             RedisValueSerializer redisValueSerializer,
+                                             RedisMessageListenerContainer redisMessageListenerContainer,
+                                             MeterRegistry meterRegistry,
+                                             @Qualifier("cacheRefreshExecutor") ThreadPoolTaskExecutor cacheRefreshExecutor,
+                                             @Value("${sky.cache.redis-ttl-minutes:1440}") long redisTtlMinutes,
+                                             @Value("${sky.cache.local-maximum-size:1000}") long localMaximumSize,
+                                             @Value("${sky.cache.local-expire-seconds:300}") long localExpireSeconds){
+        log.info("开始创建两级缓存管理器，redis缓存{}分钟，本地缓存{}条、{}秒", redisTtlMinutes, localMaximumSize, localExpireSeconds);
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .entryTtl(Duration.ofMinutes(redisTtlMinutes))
+                        .computePrefixWith(cacheGenerations)
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(redisValueSerializer)))
+                .build();
+        redisCacheManager.initializeCaches();
+
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate,
+                cacheGenerations, localMaximumSize, localExpireSeconds,
+                Duration.ofMinutes(redisTtlMinutes).toMillis(), cacheRefreshExecutor);
+        cacheManager.setMeterRegistry(meterRegistry);
+        redisMessageListenerContainer.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.TOPIC));
+        return cacheManager;
+    }
+}
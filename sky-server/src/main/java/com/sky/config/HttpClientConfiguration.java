@@ -0,0 +1,30 @@
+package com.sky.config;
+
+import com.sky.properties.HttpClientProperties;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * 配置HttpClientUtil使用的共享连接池客户端
+ */
+@Configuration
+@Slf4j
+public class HttpClientConfiguration {
+
+    @Bean(destroyMethod = "")
+    public CloseableHttpClient httpClient(HttpClientProperties httpClientProperties){
+        log.info("开始创建http连接池客户端：{}", httpClientProperties);
+        return HttpClientUtil.init(httpClientProperties);
+    }
+
+    @PreDestroy
+    public void close(){
+        log.info("关闭http连接池客户端");
+        HttpClientUtil.close();
+    }
+}
@@ -0,0 +1,128 @@
+package com.sky.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.sky.metrics.DruidDataSourcePoolMetadata;
+import com.sky.metrics.MapperMetricsInterceptor;
+import com.sky.utils.HttpClientUtil;
+import com.sky.websocket.WebSocketServer;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标配置，通过/actuator/prometheus输出
+ * 接口耗时（http.server.requests）和redis命令耗时（lettuce.command.*）由Spring Boot自动统计，
+ * 这里补充sql、连接池、外部http调用和WebSocket相关的指标
+ */
+@Configuration
+@Slf4j
+public class MetricsConfiguration {
+
+    /**
+     * 按statement id统计sql耗时的MyBatis插件，由mybatis-spring-boot-starter自动注册
+     */
+    @Bean
+    public MapperMetricsInterceptor mapperMetricsInterceptor(MeterRegistry meterRegistry) {
+        return new MapperMetricsInterceptor(meterRegistry);
+    }
+
+    /**
+     * Druid连接池状态，Spring Boot据此注册jdbc.connections.active/idle/max/min指标
+     */
+    @Bean
+    public DataSourcePoolMetadataProvider druidPoolMetadataProvider() {
+        return dataSource -> {
+            DruidDataSource druidDataSource = DataSourceUnwrapper.unwrap(dataSource, DruidDataSource.class);
+            return druidDataSource == null ? null : new DruidDataSourcePoolMetadata(druidDataSource);
+        };
+    }
+
+    /**
+     * 等待获取数据库连接的线程数
+     */
+    @Bean
+    public MeterBinder druidPendingMetrics(DataSource dataSource) {
+        return registry -> {
+            DruidDataSource druidDataSource = DataSourceUnwrapper.unwrap(dataSource, DruidDataSource.class);
+            if (druidDataSource != null) {
+                Gauge.builder("jdbc.connections.pending", druidDataSource, DruidDataSource::getWaitThreadCount)
+                        .description("等待获取数据库连接的线程数")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * 共享http连接池的状态和获取连接的耗时
+     */
+    @Bean
+    public MeterBinder httpClientPoolMetrics() {
+        return registry -> {
+            Gauge.builder("httpclient.pool.leased", () -> HttpClientUtil.getPoolStats().getLeased())
+                    .description("租用中的连接数").register(registry);
+            Gauge.builder("httpclient.pool.available", () -> HttpClientUtil.getPoolStats().getAvailable())
+                    .description("空闲的连接数").register(registry);
+            Gauge.builder("httpclient.pool.pending", () -> HttpClientUtil.getPoolStats().getPending())
+                    .description("等待获取连接的请求数").register(registry);
+            Gauge.builder("httpclient.pool.max", () -> HttpClientUtil.getPoolStats().getMax())
+                    .description("最大连接数").register(registry);
+            FunctionTimer.builder("httpclient.pool.lease", HttpClientUtil.class,
+                            x -> HttpClientUtil.getLeaseCount(), x -> HttpClientUtil.getLeaseTimeTotalMillis(),
+                            TimeUnit.MILLISECONDS)
+                    .description("从连接池获取连接的耗时").register(registry);
+            Gauge.builder("httpclient.pool.lease.max", HttpClientUtil::getLeaseTimeMaxMillis)
+                    .description("从连接池获取连接的最大耗时，单位毫秒").register(registry);
+        };
+    }
+
+    /**
+     * WebSocket连接数和频道数
+     */
+    @Bean
+    public MeterBinder webSocketMetrics() {
+        return registry -> {
+            Gauge.builder("websocket.connections", WebSocketServer::getConnectionCount)
+                    .description("当前WebSocket连接数").register(registry);
+            Gauge.builder("websocket.channels", WebSocketServer::getChannelCount)
+                    .description("当前有订阅者的频道数").register(registry);
+        };
+    }
+
+    /**
+     * actuator的接口使用PathPattern匹配路径，springfox只支持AntPathMatcher，扫描到这些接口时会空指针导致启动失败
+     * 这里让springfox只扫描使用AntPathMatcher的业务接口
+     */
+    @Bean
+    public static BeanPostProcessor springfoxHandlerProviderPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof WebMvcRequestHandlerProvider) {
+                    Field field = ReflectionUtils.findField(bean.getClass(), "handlerMappings");
+                    ReflectionUtils.makeAccessible(field);
+                    @SuppressWarnings("unchecked")
+                    List<RequestMappingInfoHandlerMapping> handlerMappings =
+                            (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+                    handlerMappings.removeIf(mapping -> mapping.getPatternParser() != null);
+                }
+                return bean;
+            }
+        };
+    }
+}
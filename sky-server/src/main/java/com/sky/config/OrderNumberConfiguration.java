@@ -0,0 +1,152 @@
+package com.sky.config;
+
+import com.sky.utils.OrderNumberGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成器配置
+ * 配置了sky.order.worker-id时直接使用，否则通过redis为每个节点分配一个未被占用的机器id，
+ * 机器id以租约形式占用，节点运行期间定时续期，关闭时释放；
+ * 租约被其他节点占用时重新分配机器id，续期失败超过本地有效期时暂停生成订单号，保证同一时刻一个机器id只被一个节点使用
+ */
+@Configuration
+@Slf4j
+public class OrderNumberConfiguration {
+
+    //机器id分配计数器
+    public static final String WORKER_SEQ_KEY = "order:worker:seq";
+
+    //机器id占用key前缀
+    public static final String WORKER_KEY_PREFIX = "order:worker:";
+
+    //机器id租约时长，单位秒
+    private static final long LEASE_SECONDS = 90;
+
+    //本地认为租约有效的时长，比redis中的租约短，留出节点之间时钟速率差异的余量
+    private static final long LOCAL_LEASE_MILLIS = TimeUnit.SECONDS.toMillis(LEASE_SECONDS - 10);
+
+    //租约仍属于当前节点时才续期
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    //租约仍属于当前节点时才释放
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${sky.order.worker-id:-1}")
+    private long configuredWorkerId;
+
+    //当前节点标识，用于确认租约归属
+    private final String nodeId = UUID.randomUUID().toString();
+
+    //通过redis分配到的机器id，使用配置的机器id时为-1
+    private volatile long leasedWorkerId = -1;
+
+    private OrderNumberGenerator generator;
+
+    @Bean
+    public OrderNumberGenerator orderNumberGenerator(){
+        if (configuredWorkerId >= 0) {
+            log.info("开始创建订单号生成器，机器id：{}", configuredWorkerId);
+            return new OrderNumberGenerator(configuredWorkerId);
+        }
+
+        long leasedAt = System.currentTimeMillis();
+        long workerId = acquireWorkerId();
+        log.info("开始创建订单号生成器，机器id：{}", workerId);
+        generator = new OrderNumberGenerator(workerId);
+        generator.setLease(workerId, leasedAt + LOCAL_LEASE_MILLIS);
+        return generator;
+    }
+
+    /**
+     * 定时续期机器id租约
+     */
+    @Scheduled(cron = "0/30 * * * * ?")
+    public void renewWorkerId(){
+        if (leasedWorkerId < 0) {
+            return;
+        }
+        //以发出续期命令前的时间计算本地有效期，保证早于redis中租约的到期时间
+        long renewedAt = System.currentTimeMillis();
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(WORKER_KEY_PREFIX + leasedWorkerId), nodeId, String.valueOf(LEASE_SECONDS));
+            if (renewed == null || renewed == 0) {
+                //租约已过期或被其他节点占用，重新分配机器id，优先使用原来的机器id
+                long previous = leasedWorkerId;
+                long workerId = tryAcquire(previous) ? previous : acquireWorkerId();
+                log.warn("机器id：{}的租约已失效，重新分配机器id：{}", previous, workerId);
+            }
+            generator.setLease(leasedWorkerId, renewedAt + LOCAL_LEASE_MILLIS);
+        } catch (Exception e) {
+            //不延长本地有效期，续期一直失败时到期后暂停生成订单号
+            log.warn("机器id：{}续期失败", leasedWorkerId, e);
+        }
+    }
+
+    /**
+     * 关闭时释放机器id
+     */
+    @PreDestroy
+    public void releaseWorkerId(){
+        if (leasedWorkerId < 0) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(WORKER_KEY_PREFIX + leasedWorkerId), nodeId);
+        } catch (Exception e) {
+            log.warn("机器id：{}释放失败", leasedWorkerId, e);
+        }
+    }
+
+    /**
+     * 从计数器的位置开始依次尝试占用机器id
+     * @return
+     */
+    private long acquireWorkerId(){
+        Long start = stringRedisTemplate.opsForValue().increment(WORKER_SEQ_KEY);
+        for (long i = 0; i <= OrderNumberGenerator.MAX_WORKER_ID; i++) {
+            long workerId = (start + i) & OrderNumberGenerator.MAX_WORKER_ID;
+            if (tryAcquire(workerId)) {
+                return workerId;
+            }
+        }
+        throw new IllegalStateException("没有可用的订单号机器id");
+    }
+
+    /**
+     * 尝试占用指定的机器id
+     * @param workerId
+     * @return 是否占用成功
+     */
+    private boolean tryAcquire(long workerId){
+        if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(WORKER_KEY_PREFIX + workerId, nodeId, LEASE_SECONDS, TimeUnit.SECONDS))) {
+            leasedWorkerId = workerId;
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,22 +1,68 @@
 package com.sky.config;
 
+import com.sky.cache.RedisValueSerializer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @Slf4j
 public class RedisConfiguration {
+    /**
+     * redis value序列化器，RedisTemplate和Spring Cache共用
+     * 读取时兼容原来JDK序列化的值
+     */
     @Bean
-    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory){
-        RedisTemplate redisTemplate = new RedisTemplate();
+    public RedisValueSerializer redisValueSerializer(@Value("${sky.redis.value-format:JSON}") RedisValueSerializer.Format format){
+        log.info("redis value序列化格式：{}", format);
+        return new RedisValueSerializer(format);
+    }
+
+    @Bean
+    public RedisTemplate<Object, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory, RedisValueSerializer redisValueSerializer){
+        RedisTemplate<Object, Object> redisTemplate = new RedisTemplate<>();
         //设置redis的连接工厂对象
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //设置redis key的系列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        //设置redis value的系列化器
+        redisTemplate.setValueSerializer(redisValueSerializer);
+        redisTemplate.setHashValueSerializer(redisValueSerializer);
         return redisTemplate;
     }
+
+    /**
+     * 分发redis pub/sub消息的线程池
+     * 单个线程按收到的顺序依次分发，保证同一频道内消息的顺序；关闭应用时等待已收到的消息分发完成
+     */
+    @Bean
+    public ThreadPoolTaskExecutor redisListenerExecutor(){
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("redis-listener-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    /**
+     * redis消息监听容器，用于接收其他节点通过pub/sub发布的消息
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       @Qualifier("redisListenerExecutor") ThreadPoolTaskExecutor redisListenerExecutor){
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.setTaskExecutor(redisListenerExecutor);
+        return container;
+    }
 }
@@ -0,0 +1,36 @@
+package com.sky.config;
+
+import com.sky.metrics.QueryAuditFilter;
+import com.sky.metrics.QueryAuditInterceptor;
+import com.sky.properties.SqlAuditProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * sql审计配置：打印慢sql，发现N+1查询和超出查询预算的接口
+ */
+@Configuration
+@Slf4j
+public class SqlAuditConfiguration {
+
+    /**
+     * 记录每条sql的MyBatis插件，由mybatis-spring-boot-starter自动注册
+     */
+    @Bean
+    public QueryAuditInterceptor queryAuditInterceptor(SqlAuditProperties sqlAuditProperties) {
+        return new QueryAuditInterceptor(sqlAuditProperties);
+    }
+
+    /**
+     * 按请求统计sql的过滤器
+     */
+    @Bean
+    public FilterRegistrationBean<QueryAuditFilter> queryAuditFilter(SqlAuditProperties sqlAuditProperties) {
+        log.info("开启sql审计：{}", sqlAuditProperties);
+        FilterRegistrationBean<QueryAuditFilter> registration = new FilterRegistrationBean<>(new QueryAuditFilter(sqlAuditProperties));
+        registration.addUrlPatterns("/admin/*", "/user/*");
+        return registration;
+    }
+}
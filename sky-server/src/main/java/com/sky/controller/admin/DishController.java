@@ -11,12 +11,12 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 /**
  * 菜品管理
@@ -32,9 +32,6 @@ public class DishController {
     @Autowired
     private DishService dishService;
 
-    @Autowired
-    private RedisTemplate redisTemplate;
-
     /**
      * 新增菜品
      * @param dishDTO
@@ -42,13 +39,10 @@ public class DishController {
      */
     @PostMapping
     @ApiOperation("新增菜品")
+    @CacheEvict(cacheNames = "dishCache", key = "#dishDTO.categoryId") //清理新增菜品所属分类的缓存数据
     public Result save(@RequestBody DishDTO dishDTO){
         log.info("新增菜品：{}", dishDTO);
         dishService.saveWithFlavor(dishDTO);
-
-        //清理缓存数据
-        String key = "dish_" + dishDTO.getCategoryId();
-        cleanCache(key);
         return Result.success();
     }
 
@@ -73,12 +67,11 @@ public class DishController {
      */
     @DeleteMapping
     @ApiOperation("菜品的批量删除")
+    //由于批量删除的菜品可能属于不同分类，而一个个删除对应分类的缓存太麻烦， 因此这里选择将dishCache下所有的缓存全删除
+    @CacheEvict(cacheNames = "dishCache", allEntries = true)
     public Result delete(@RequestParam List<Long> ids){ //@RequestParam把字符串id转换成list集合
         log.info("菜品的批量删除：{}", ids);
         dishService.deleteBatch(ids);
-
-        //由于批量删除的菜品可能属于不同分类，而一个个删除对应分类的缓存太麻烦， 因此这里选择将所有dish_开头的缓存全删除
-        cleanCache("dish_*");
         return Result.success();
     }
 
@@ -95,6 +88,19 @@ public class DishController {
         return Result.success(dishVO);
     }
 
+    /**
+     * 根据id批量查询菜品
+     * @param ids
+     * @return
+     */
+    @GetMapping("/batch")
+    @ApiOperation("根据id批量查询菜品")
+    public Result<List<DishVO>> getByIds(@RequestParam List<Long> ids){
+        log.info("根据id批量查询菜品：{}", ids);
+        List<DishVO> list = dishService.getByIdsWithFlavor(ids);
+        return Result.success(list);
+    }
+
     /**
      * 修改菜品信息
      * @param dishDTO
@@ -102,12 +108,15 @@ public class DishController {
      */
     @PutMapping
     @ApiOperation("修改菜品信息")
+    //由于修改菜品可能修改到分类，而一个个删除对应分类的缓存太麻烦， 因此这里选择将dishCache下所有的缓存全删除
+    //套餐包含的菜品列表中有菜品名称、图片等信息，也一起删除
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "dishCache", allEntries = true),
+            @CacheEvict(cacheNames = "setmealDishCache", allEntries = true)
+    })
     public Result update(@RequestBody DishDTO dishDTO){
         log.info("修改菜品信息：{}", dishDTO);
         dishService.updateWithFlavor(dishDTO);
-
-        //由于修改菜品可能修改到分类，而一个个删除对应分类的缓存太麻烦， 因此这里选择将所有dish_开头的缓存全删除
-        cleanCache("dish_*");
         return Result.success();
 
     }
@@ -120,6 +129,7 @@ public class DishController {
      */
     @PostMapping("/status/{status}")
     @ApiOperation("菜品起售停售")
+    @CacheEvict(cacheNames = "dishCache", allEntries = true) //停售的菜品不能再出现在用户端的菜品列表中
     public Result<String> startOrStop(@PathVariable Integer status, Long id){
         dishService.startOrStop(status,id);
         return Result.success();
@@ -137,13 +147,4 @@ public class DishController {
         return Result.success(list);
     }
 
-    /**
-     *     清理缓存数据
-     * @param patten
-     */
-    private void cleanCache(String patten){
-        Set keys = redisTemplate.keys(patten);
-        redisTemplate.delete(keys);
-    }
-
 }
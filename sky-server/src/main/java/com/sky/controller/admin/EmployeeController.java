@@ -80,7 +80,6 @@ public class EmployeeController {
     @ApiOperation("新增员工")
     public Result save(@RequestBody EmployeeDTO employeeDTO){//接收到的请求时json格式，因此加一个@RequestBody
         log.info("新增员工: {}", employeeDTO);
-        System.out.println("当前线程的id：" + Thread.currentThread().getId());
         employeeService.save(employeeDTO);
         return Result.success();
     }
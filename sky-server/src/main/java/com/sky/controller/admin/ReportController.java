@@ -13,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletResponse;
@@ -92,12 +93,24 @@ public class ReportController {
     }
 
     /**
-     * 导出运营数据报表
+     * 导出运营数据报表，不传时间区间时导出最近30天
+     * @param begin
+     * @param end
+     * @param detail 是否导出订单明细
      * @param response
      */
     @GetMapping("/export")
     @ApiOperation("导出运营数据报表")
-    public void export(HttpServletResponse response){
-        reportService.exportBusinessData(response);
+    public void export(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            @RequestParam(defaultValue = "false") Boolean detail,
+            HttpServletResponse response){
+        if (begin == null || end == null) {
+            reportService.exportBusinessData(response);
+            return;
+        }
+        log.info("导出运营数据报表：{}，{}，订单明细：{}", begin, end, detail);
+        reportService.exportBusinessData(begin, end, detail, response);
     }
 }
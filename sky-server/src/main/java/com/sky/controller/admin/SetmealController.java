@@ -14,6 +14,7 @@ import org.apache.ibatis.annotations.Delete;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -57,7 +58,10 @@ public class SetmealController {
      */
     @DeleteMapping
     @ApiOperation("批量删除套餐")
-    @CacheEvict(cacheNames = "setmealCache",allEntries = true) // 删除setmealCache下所有的缓存
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "setmealCache",allEntries = true), // 删除setmealCache下所有的缓存
+            @CacheEvict(cacheNames = "setmealDishCache",allEntries = true) // 套餐包含的菜品可能变化
+    })
     public Result delete(@RequestParam List<Long> ids){
         setmealService.deleteBatch(ids);
         return Result.success();
@@ -82,7 +86,10 @@ public class SetmealController {
      */
     @PutMapping
     @ApiOperation("修改套餐")
-    @CacheEvict(cacheNames = "setmealCache",allEntries = true) // 删除setmealCache下所有的缓存
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "setmealCache",allEntries = true), // 删除setmealCache下所有的缓存
+            @CacheEvict(cacheNames = "setmealDishCache",allEntries = true) // 套餐包含的菜品可能变化
+    })
     public Result update(@RequestBody SetmealDTO setmealDTO) {
         setmealService.update(setmealDTO);
         return Result.success();
@@ -0,0 +1,89 @@
+package com.sky.interceptor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * jwt令牌校验器，一个秘钥对应一个实例
+ * 解析器和秘钥只创建一次；校验通过的令牌缓存其claims，同一令牌再次请求时不再重复验签和解析，
+ * 缓存时间不超过令牌的剩余有效期。校验失败的令牌不缓存
+ */
+public class JwtTokenVerifier {
+
+    private final JwtParser parser;
+
+    //令牌 -> claims，claims只读，不能修改
+    private final Cache<String, Claims> verifiedCache;
+
+    /**
+     * @param secretKey jwt秘钥
+     * @param maximumSize 缓存的令牌条数上限
+     * @param maxCacheSeconds 令牌最长缓存时间，单位秒
+     */
+    public JwtTokenVerifier(String secretKey, long maximumSize, long maxCacheSeconds) {
+        this.parser = JwtUtil.createParser(secretKey);
+        long maxCacheNanos = TimeUnit.SECONDS.toNanos(maxCacheSeconds);
+        this.verifiedCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String token, Claims claims, long currentTime) {
+                        Date expiration = claims.getExpiration();
+                        if (expiration == null) {
+                            return maxCacheNanos;
+                        }
+                        long remaining = TimeUnit.MILLISECONDS.toNanos(expiration.getTime() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(remaining, maxCacheNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Claims claims, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Claims claims, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 校验令牌并返回claims
+     * @param token
+     * @return
+     * @throws io.jsonwebtoken.JwtException 令牌无效或已过期
+     * @throws IllegalArgumentException 令牌为空
+     */
+    public Claims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT String argument cannot be null or empty.");
+        }
+
+        Claims claims = verifiedCache.getIfPresent(token);
+        if (claims != null) {
+            //缓存过期时间按秒级精度清理，这里再精确判断一次
+            Date expiration = claims.getExpiration();
+            if (expiration == null || expiration.getTime() > System.currentTimeMillis()) {
+                return claims;
+            }
+            verifiedCache.invalidate(token);
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + expiration);
+        }
+
+        claims = parser.parseClaimsJws(token).getBody();
+        verifiedCache.put(token, claims);
+        return claims;
+    }
+}
@@ -0,0 +1,39 @@
+package com.sky.mapper;
+
+import com.sky.entity.BusinessDailyStats;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface BusinessDailyStatsMapper {
+
+    /**
+     * 批量插入每日汇总数据，日期已存在时覆盖
+     * @param statsList
+     */
+    void insertOrUpdateBatch(List<BusinessDailyStats> statsList);
+
+    /**
+     * 查询指定日期区间内的每日汇总数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Select("select * from business_daily_stats where stat_date between #{begin} and #{end} order by stat_date")
+    List<BusinessDailyStats> listByDateRange(LocalDate begin, LocalDate end);
+
+    /**
+     * 增量修改某天的有效订单数和营业额，当天还没有汇总数据时不做任何修改
+     * @param statDate
+     * @param validOrderDelta
+     * @param turnoverDelta
+     */
+    @Update("update business_daily_stats set valid_order_count = valid_order_count + #{validOrderDelta}, " +
+            "turnover = turnover + #{turnoverDelta}, update_time = now() where stat_date = #{statDate}")
+    void updateValidOrderDelta(LocalDate statDate, Integer validOrderDelta, BigDecimal turnoverDelta);
+}
@@ -35,4 +35,11 @@ public interface DishFlavorMapper {
      */
     @Select("select * from dish_flavor where dish_id = #{dishId}")
     List<DishFlavor> getByDishId(long dishId);
+
+    /**
+     * 根据菜品id批量查询口味，一次查询代替逐个菜品查询
+     * @param dishIds
+     * @return
+     */
+    List<DishFlavor> getByDishIds(List<Long> dishIds);
 }
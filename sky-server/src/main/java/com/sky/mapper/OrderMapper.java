@@ -2,10 +2,12 @@ package com.sky.mapper;
 
 import com.github.pagehelper.Page;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderDailyDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -64,6 +66,35 @@ public interface OrderMapper {
     @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
     List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
 
+    /**
+     * 查询指定状态的订单id和下单时间
+     * @param status
+     * @return
+     */
+    @Select("select id, order_time from orders where status = #{status}")
+    List<Orders> getIdAndOrderTimeByStatus(Integer status);
+
+    /**
+     * 锁定一批指定状态且下单时间早于指定时间的订单，只查询id、下单时间和金额
+     * 需要在事务中调用，锁在事务提交时释放
+     * @param status
+     * @param orderTime
+     * @param limit 每批最多锁定的订单数
+     * @return
+     */
+    @Select("select id, order_time, amount from orders where status = #{status} and order_time < #{orderTime} " +
+            "order by id limit #{limit} for update")
+    List<Orders> lockByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime, Integer limit);
+
+    /**
+     * 批量修改订单状态，只修改仍处于原状态的订单
+     * @param ids
+     * @param fromStatus 原状态
+     * @param orders 新状态及取消原因、取消时间等需要一起修改的字段
+     * @return 修改的行数
+     */
+    int updateStatusByIds(List<Long> ids, Integer fromStatus, Orders orders);
+
     /**
      * 根据动态条件统计营业额数据
      * @param map
@@ -85,4 +116,21 @@ public interface OrderMapper {
      * @return
      */
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天分组统计指定时间内的订单总数、有效订单数和营业额，没有订单的日期不会返回
+     * @param begin
+     * @param end
+     * @param status 有效订单的状态
+     * @return
+     */
+    List<OrderDailyDTO> sumDailyByRange(LocalDateTime begin, LocalDateTime end, Integer status);
+
+    /**
+     * 流式查询指定时间内的订单，逐条交给handler处理，不会一次性把结果全部加载到内存
+     * @param begin
+     * @param end
+     * @param handler
+     */
+    void streamByOrderTime(LocalDateTime begin, LocalDateTime end, ResultHandler<Orders> handler);
 }
@@ -6,6 +6,7 @@ import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.entity.Setmeal;
 import com.sky.enumeration.OperationType;
 import com.sky.vo.DishItemVO;
+import com.sky.vo.MenuSetmealVO;
 import com.sky.vo.SetmealVO;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
@@ -76,6 +77,12 @@ public interface SetmealMapper {
             "where sd.setmeal_id = #{setmealId}")
     List<DishItemVO> getDishItemBySetmealId(Long setmealId);
 
+    /**
+     * 查询所有起售中的套餐及其包含的菜品，一次联表查询代替逐个套餐查询
+     * @return
+     */
+    List<MenuSetmealVO> listEnabledWithDishItem();
+
     /**
      * 根据条件统计套餐数量
      * @param map
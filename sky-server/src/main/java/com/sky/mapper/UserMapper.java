@@ -1,9 +1,12 @@
 package com.sky.mapper;
 
+import com.sky.dto.UserDailyDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -32,4 +35,12 @@ public interface UserMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 按天分组统计指定时间内的新增用户数，没有新增用户的日期不会返回
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<UserDailyDTO> countDailyByRange(LocalDateTime begin, LocalDateTime end);
 }
@@ -0,0 +1,44 @@
+package com.sky.metrics;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.springframework.boot.jdbc.metadata.AbstractDataSourcePoolMetadata;
+
+/**
+ * Druid连接池的状态，Spring Boot据此注册jdbc.connections.*指标
+ */
+public class DruidDataSourcePoolMetadata extends AbstractDataSourcePoolMetadata<DruidDataSource> {
+
+    public DruidDataSourcePoolMetadata(DruidDataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public Integer getActive() {
+        return getDataSource().getActiveCount();
+    }
+
+    @Override
+    public Integer getIdle() {
+        return getDataSource().getPoolingCount();
+    }
+
+    @Override
+    public Integer getMax() {
+        return getDataSource().getMaxActive();
+    }
+
+    @Override
+    public Integer getMin() {
+        return getDataSource().getMinIdle();
+    }
+
+    @Override
+    public String getValidationQuery() {
+        return getDataSource().getValidationQuery();
+    }
+
+    @Override
+    public Boolean getDefaultAutoCommit() {
+        return getDataSource().isDefaultAutoCommit();
+    }
+}
@@ -0,0 +1,85 @@
+package com.sky.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次请求（或测试中的一段代码）内执行的sql统计，保存在当前线程中
+ * QueryAuditFilter在请求开始时开启、结束时检查；测试中也可以直接调用begin/end统计任意一段代码
+ */
+public class QueryAudit {
+
+    private static final ThreadLocal<QueryAudit> CURRENT = new ThreadLocal<>();
+
+    //请求路径或测试名称
+    private final String name;
+
+    //statement id -> 执行次数，按第一次执行的顺序排列
+    private final Map<String, Integer> statementCounts = new LinkedHashMap<>();
+
+    private int total;
+
+    private QueryAudit(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 在当前线程开始统计
+     * @param name
+     */
+    public static void begin(String name) {
+        CURRENT.set(new QueryAudit(name));
+    }
+
+    /**
+     * 结束当前线程的统计
+     * @return 统计结果，未开始统计时返回null
+     */
+    public static QueryAudit end() {
+        QueryAudit audit = CURRENT.get();
+        CURRENT.remove();
+        return audit;
+    }
+
+    /**
+     * 记录一次sql执行，当前线程未开始统计时忽略
+     * @param statementId
+     */
+    static void record(String statementId) {
+        QueryAudit audit = CURRENT.get();
+        if (audit != null) {
+            audit.statementCounts.merge(statementId, 1, Integer::sum);
+            audit.total++;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public Map<String, Integer> getStatementCounts() {
+        return Collections.unmodifiableMap(statementCounts);
+    }
+
+    /**
+     * 执行次数达到阈值的statement，即疑似的N+1查询
+     * @param threshold
+     * @return
+     */
+    public List<String> getRepeatedStatements(int threshold) {
+        List<String> repeated = new ArrayList<>();
+        statementCounts.forEach((statementId, count) -> {
+            if (count >= threshold) {
+                repeated.add(statementId + " x" + count);
+            }
+        });
+        return repeated;
+    }
+}
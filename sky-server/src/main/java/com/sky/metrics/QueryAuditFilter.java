@@ -0,0 +1,67 @@
+package com.sky.metrics;
+
+import com.sky.properties.SqlAuditProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 统计每次请求执行的sql，请求结束时检查N+1查询和查询预算
+ */
+@Slf4j
+public class QueryAuditFilter extends OncePerRequestFilter {
+
+    private final SqlAuditProperties sqlAuditProperties;
+
+    public QueryAuditFilter(SqlAuditProperties sqlAuditProperties) {
+        this.sqlAuditProperties = sqlAuditProperties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !sqlAuditProperties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryAudit.begin(request.getMethod() + " " + request.getRequestURI());
+        QueryAudit audit;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            audit = QueryAudit.end();
+        }
+        check(audit);
+    }
+
+    /**
+     * 检查一次请求执行的sql，违规时打印警告，测试环境可配置为直接抛出异常
+     * @param audit
+     */
+    private void check(QueryAudit audit) {
+        String violation = null;
+
+        List<String> repeated = audit.getRepeatedStatements(sqlAuditProperties.getRepeatThreshold());
+        if (!repeated.isEmpty()) {
+            violation = "疑似N+1查询：" + audit.getName() + "，重复执行的sql：" + repeated;
+            log.warn(violation);
+        }
+
+        if (audit.getTotal() > sqlAuditProperties.getMaxQueriesPerRequest()) {
+            violation = "超出查询预算：" + audit.getName() + "，执行sql " + audit.getTotal() + "条，预算"
+                    + sqlAuditProperties.getMaxQueriesPerRequest() + "条，明细：" + audit.getStatementCounts();
+            log.warn(violation);
+        }
+
+        if (violation != null && sqlAuditProperties.isFailOnViolation()) {
+            throw new QueryBudgetExceededException(violation);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.sky.metrics;
+
+import com.sky.properties.SqlAuditProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MyBatis插件，记录当前请求执行的statement id（用于发现N+1查询和超出查询预算的接口），
+ * 并打印执行时间超过阈值的慢sql及其参数
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+@Slf4j
+public class QueryAuditInterceptor implements Interceptor {
+
+    private final SqlAuditProperties sqlAuditProperties;
+
+    public QueryAuditInterceptor(SqlAuditProperties sqlAuditProperties) {
+        this.sqlAuditProperties = sqlAuditProperties;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!sqlAuditProperties.isEnabled()) {
+            return invocation.proceed();
+        }
+
+        Object[] args = invocation.getArgs();
+        MappedStatement mappedStatement = (MappedStatement) args[0];
+        QueryAudit.record(mappedStatement.getId());
+
+        long start = System.currentTimeMillis();
+        try {
+            return invocation.proceed();
+        } finally {
+            long elapsed = System.currentTimeMillis() - start;
+            if (elapsed >= sqlAuditProperties.getSlowMillis()) {
+                //只有慢sql才取sql和参数，正常情况下没有额外开销
+                BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : mappedStatement.getBoundSql(args[1]);
+                log.warn("慢sql：{}，耗时{}ms，sql：{}，参数：{}", mappedStatement.getId(), elapsed,
+                        boundSql.getSql().replaceAll("\\s+", " "),
+                        getParameters(mappedStatement.getConfiguration(), boundSql));
+            }
+        }
+    }
+
+    /**
+     * 按占位符顺序取出sql的参数值，取值方式与MyBatis设置参数时一致
+     * @param configuration
+     * @param boundSql
+     * @return
+     */
+    private List<Object> getParameters(Configuration configuration, BoundSql boundSql) {
+        List<Object> parameters = new ArrayList<>();
+        Object parameterObject = boundSql.getParameterObject();
+        MetaObject metaObject = null;
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            String property = parameterMapping.getProperty();
+            if (boundSql.hasAdditionalParameter(property)) {
+                parameters.add(boundSql.getAdditionalParameter(property));
+            } else if (parameterObject == null) {
+                parameters.add(null);
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                parameters.add(parameterObject);
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                parameters.add(metaObject.getValue(property));
+            }
+        }
+        return parameters;
+    }
+}
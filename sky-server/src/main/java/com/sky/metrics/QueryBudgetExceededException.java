@@ -0,0 +1,11 @@
+package com.sky.metrics;
+
+/**
+ * 一次请求执行的sql超出预算或出现N+1查询，只在开启sky.sql-audit.fail-on-violation时抛出
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String msg) {
+        super(msg);
+    }
+}
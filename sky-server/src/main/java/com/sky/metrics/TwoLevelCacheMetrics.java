@@ -0,0 +1,48 @@
+package com.sky.metrics;
+
+import com.sky.cache.TwoLevelCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 两级缓存的命中、加载和本地缓存大小指标，每个缓存一个实例
+ */
+public class TwoLevelCacheMetrics implements MeterBinder {
+
+    private final TwoLevelCache cache;
+
+    public TwoLevelCacheMetrics(TwoLevelCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String name = cache.getName();
+        FunctionCounter.builder("cache.two_level.gets", cache, TwoLevelCache::getLocalHitCount)
+                .tag("cache", name).tag("result", "local_hit")
+                .description("一级缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("cache.two_level.gets", cache, TwoLevelCache::getRedisHitCount)
+                .tag("cache", name).tag("result", "redis_hit")
+                .description("二级缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("cache.two_level.gets", cache, TwoLevelCache::getMissCount)
+                .tag("cache", name).tag("result", "miss")
+                .description("两级缓存都未命中的次数")
+                .register(registry);
+        FunctionCounter.builder("cache.two_level.loads", cache, TwoLevelCache::getLoadCount)
+                .tag("cache", name)
+                .description("查询数据库加载的次数")
+                .register(registry);
+        FunctionCounter.builder("cache.two_level.refreshes", cache, TwoLevelCache::getRefreshCount)
+                .tag("cache", name)
+                .description("提前刷新的次数")
+                .register(registry);
+        Gauge.builder("cache.two_level.local.size", cache, TwoLevelCache::getLocalSize)
+                .tag("cache", name)
+                .description("一级缓存的条数")
+                .register(registry);
+    }
+}
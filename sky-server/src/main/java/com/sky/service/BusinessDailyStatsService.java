@@ -0,0 +1,33 @@
+package com.sky.service;
+
+import com.sky.entity.BusinessDailyStats;
+import com.sky.entity.Orders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BusinessDailyStatsService {
+
+    /**
+     * 根据订单表和用户表重新计算指定日期区间的每日汇总数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<BusinessDailyStats> refresh(LocalDate begin, LocalDate end);
+
+    /**
+     * 查询已结束日期的每日汇总数据，缺失的日期会先补算
+     * @param begin
+     * @param end 不能晚于昨天
+     * @return 区间内每天一条，按日期升序
+     */
+    List<BusinessDailyStats> listClosedDays(LocalDate begin, LocalDate end);
+
+    /**
+     * 订单状态变更时增量修改订单日期对应的汇总数据
+     * @param ordersDB 变更前的订单
+     * @param status 变更后的状态
+     */
+    void onOrderStatusChange(Orders ordersDB, Integer status);
+}
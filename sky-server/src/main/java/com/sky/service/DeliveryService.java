@@ -0,0 +1,12 @@
+package com.sky.service;
+
+import com.sky.entity.AddressBook;
+
+public interface DeliveryService {
+
+    /**
+     * 检查收货地址是否超出配送范围，超出时抛出业务异常
+     * @param addressBook
+     */
+    void checkOutOfRange(AddressBook addressBook);
+}
@@ -8,6 +8,7 @@ import com.sky.result.Result;
 import com.sky.vo.DishVO;
 
 import java.util.List;
+import java.util.Map;
 
 public interface DishService {
     /**
@@ -36,6 +37,13 @@ public interface DishService {
      */
     DishVO getByIdWithFlavor(long id);
 
+    /**
+     * 根据id批量查询菜品及其口味
+     * @param ids
+     * @return
+     */
+    List<DishVO> getByIdsWithFlavor(List<Long> ids);
+
     /**
      * 修改菜品信息
      * @param dishDTO
@@ -57,6 +65,12 @@ public interface DishService {
      */
     List<DishVO> listWithFlavor(Dish dish);
 
+    /**
+     * 查询所有起售中的菜品和口味，按分类分组，用于预热菜单缓存
+     * @return key为分类id
+     */
+    Map<Long, List<DishVO>> listEnabledWithFlavorGroupByCategory();
+
     /**
      * 菜品起售停售设置
      * @param status
@@ -0,0 +1,23 @@
+package com.sky.service;
+
+/**
+ * 地图服务，负责地址解析和路线规划
+ * 默认实现调用百度地图接口，测试时可以提供本地实现替换
+ */
+public interface GeoService {
+
+    /**
+     * 地址解析
+     * @param address
+     * @return 经纬度坐标，格式为"纬度,经度"；解析失败返回null
+     */
+    String geocode(String address);
+
+    /**
+     * 驾车路线规划
+     * @param origin 起点坐标，格式为"纬度,经度"
+     * @param destination 终点坐标，格式为"纬度,经度"
+     * @return 路线距离，单位米；规划失败返回null
+     */
+    Integer drivingDistance(String origin, String destination);
+}
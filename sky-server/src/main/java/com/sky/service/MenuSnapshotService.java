@@ -0,0 +1,17 @@
+package com.sky.service;
+
+import com.sky.cache.MenuSnapshot;
+
+public interface MenuSnapshotService {
+
+    /**
+     * 获取当前的菜单快照，菜单有修改时重新生成
+     * @return
+     */
+    MenuSnapshot getSnapshot();
+
+    /**
+     * 菜单已修改，在当前事务提交后使所有节点的快照失效
+     */
+    void invalidate();
+}
@@ -0,0 +1,36 @@
+package com.sky.service;
+
+import java.time.LocalDateTime;
+
+public interface OrderTimeoutService {
+
+    /**
+     * 登记待支付订单，下单时间加上支付时限后自动取消
+     * @param orderId
+     * @param orderTime
+     */
+    void schedule(Long orderId, LocalDateTime orderTime);
+
+    /**
+     * 订单已支付或已取消，移除登记
+     * @param orderId
+     */
+    void unschedule(Long orderId);
+
+    /**
+     * 取消已到期的订单
+     * @return 取消的订单数
+     */
+    int processDue();
+
+    /**
+     * 支付超时的下单时间界限，下单时间早于该时间的待支付订单已超时
+     * @return
+     */
+    LocalDateTime getExpiredOrderTime();
+
+    /**
+     * 根据数据库中的待支付订单重建延时队列
+     */
+    void rebuild();
+}
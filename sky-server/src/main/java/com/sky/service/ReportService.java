@@ -47,4 +47,13 @@ public interface ReportService {
      * @param response
      */
     void exportBusinessData(HttpServletResponse response);
+
+    /**
+     * 导出指定时间区间的运营数据报表
+     * @param begin
+     * @param end
+     * @param withOrderDetail 是否导出订单明细
+     * @param response
+     */
+    void exportBusinessData(LocalDate begin, LocalDate end, boolean withOrderDetail, HttpServletResponse response);
 }
@@ -28,4 +28,29 @@ public interface ShoppingCartService {
      * @param shoppingCartDTO
      */
     void subShoppingCart(ShoppingCartDTO shoppingCartDTO);
+
+    /**
+     * 查询指定用户的购物车数据
+     * @param userId
+     * @return
+     */
+    List<ShoppingCart> listByUserId(Long userId);
+
+    /**
+     * 清空指定用户的购物车
+     * @param userId
+     */
+    void cleanByUserId(Long userId);
+
+    /**
+     * 批量添加商品到指定用户的购物车，已存在的商品累加数量
+     * @param userId
+     * @param shoppingCartList
+     */
+    void addBatch(Long userId, List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 将有改动的购物车写回数据库
+     */
+    void flushDirtyCarts();
 }
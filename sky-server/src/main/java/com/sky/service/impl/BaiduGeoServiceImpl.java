@@ -0,0 +1,80 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.service.GeoService;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于百度地图接口的地图服务
+ */
+@Service
+@Slf4j
+public class BaiduGeoServiceImpl implements GeoService {
+
+    //地址解析接口路径
+    public static final String GEOCODING = "/geocoding/v3";
+
+    //驾车路线规划接口路径
+    public static final String DRIVING = "/directionlite/v1/driving";
+
+    @Value("${sky.baidu.ak}")
+    private String ak;
+
+    //百度地图接口地址
+    @Value("${sky.baidu.api-url:https://api.map.baidu.com}")
+    private String apiUrl;
+
+    /**
+     * 地址解析
+     * @param address
+     * @return 经纬度坐标，格式为"纬度,经度"；解析失败返回null
+     */
+    public String geocode(String address) {
+        Map<String, String> map = new HashMap<>();
+        map.put("address", address);
+        map.put("output", "json");
+        map.put("ak", ak);
+
+        JSONObject jsonObject = JSON.parseObject(HttpClientUtil.doGet(apiUrl + GEOCODING, map));
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            log.warn("地址解析失败：{}", address);
+            return null;
+        }
+
+        //数据解析
+        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
+        return location.getString("lat") + "," + location.getString("lng");
+    }
+
+    /**
+     * 驾车路线规划
+     * @param origin 起点坐标，格式为"纬度,经度"
+     * @param destination 终点坐标，格式为"纬度,经度"
+     * @return 路线距离，单位米；规划失败返回null
+     */
+    public Integer drivingDistance(String origin, String destination) {
+        Map<String, String> map = new HashMap<>();
+        map.put("origin", origin);
+        map.put("destination", destination);
+        map.put("steps_info", "0");
+        map.put("ak", ak);
+
+        JSONObject jsonObject = JSON.parseObject(HttpClientUtil.doGet(apiUrl + DRIVING, map));
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            log.warn("配送路线规划失败：{} -> {}", origin, destination);
+            return null;
+        }
+
+        //数据解析
+        JSONArray routes = jsonObject.getJSONObject("result").getJSONArray("routes");
+        return routes.getJSONObject(0).getInteger("distance");
+    }
+}
@@ -0,0 +1,135 @@
+package com.sky.service.impl;
+
+import com.sky.dto.OrderDailyDTO;
+import com.sky.dto.UserDailyDTO;
+import com.sky.entity.BusinessDailyStats;
+import com.sky.entity.Orders;
+import com.sky.mapper.BusinessDailyStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessDailyStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 每日营业数据汇总
+ * 已结束的日期由定时任务和查询时补算写入汇总表，之后订单状态变化只做增量修改，不再重新扫描订单表
+ */
+@Service
+@Slf4j
+public class BusinessDailyStatsServiceImpl implements BusinessDailyStatsService {
+
+    @Autowired
+    private BusinessDailyStatsMapper businessDailyStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 根据订单表和用户表重新计算指定日期区间的每日汇总数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    public List<BusinessDailyStats> refresh(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
+
+        //两条分组sql查出整个区间的数据
+        Map<LocalDate, OrderDailyDTO> orderDailyMap = orderMapper.sumDailyByRange(beginTime, endTime, Orders.COMPLETED)
+                .stream().collect(Collectors.toMap(OrderDailyDTO::getOrderDate, Function.identity()));
+        Map<LocalDate, Integer> newUserMap = userMapper.countDailyByRange(beginTime, endTime)
+                .stream().collect(Collectors.toMap(UserDailyDTO::getCreateDate, UserDailyDTO::getNewUsers));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<BusinessDailyStats> statsList = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            OrderDailyDTO orderDaily = orderDailyMap.get(date);
+            BusinessDailyStats stats = BusinessDailyStats.builder()
+                    .statDate(date)
+                    .totalOrderCount(orderDaily == null ? 0 : orderDaily.getOrderCount())
+                    .validOrderCount(orderDaily == null ? 0 : orderDaily.getValidOrderCount())
+                    .turnover(orderDaily == null || orderDaily.getTurnover() == null
+                            ? BigDecimal.ZERO : BigDecimal.valueOf(orderDaily.getTurnover()))
+                    .newUsers(newUserMap.getOrDefault(date, 0))
+                    .updateTime(now)
+                    .build();
+            statsList.add(stats);
+        }
+
+        if (!statsList.isEmpty()) {
+            businessDailyStatsMapper.insertOrUpdateBatch(statsList);
+        }
+        log.info("每日营业数据汇总完成：{} 至 {}", begin, end);
+        return statsList;
+    }
+
+    /**
+     * 查询已结束日期的每日汇总数据，缺失的日期会先补算
+     * @param begin
+     * @param end 不能晚于昨天
+     * @return 区间内每天一条，按日期升序
+     */
+    public List<BusinessDailyStats> listClosedDays(LocalDate begin, LocalDate end) {
+        Map<LocalDate, BusinessDailyStats> statsMap = new TreeMap<>();
+        businessDailyStatsMapper.listByDateRange(begin, end).forEach(stats -> statsMap.put(stats.getStatDate(), stats));
+
+        //找出汇总表中缺失的日期范围，一次性补算
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            if (!statsMap.containsKey(date)) {
+                if (firstMissing == null) {
+                    firstMissing = date;
+                }
+                lastMissing = date;
+            }
+        }
+
+        if (firstMissing != null) {
+            refresh(firstMissing, lastMissing).forEach(stats -> statsMap.put(stats.getStatDate(), stats));
+        }
+        return new ArrayList<>(statsMap.values());
+    }
+
+    /**
+     * 订单状态变更时增量修改订单日期对应的汇总数据
+     * 只有进入或离开"已完成"状态会影响有效订单数和营业额；订单日期还没有汇总时不修改，等结算时统一计算
+     * @param ordersDB 变更前的订单
+     * @param status 变更后的状态
+     */
+    public void onOrderStatusChange(Orders ordersDB, Integer status) {
+        if (ordersDB == null || ordersDB.getOrderTime() == null || status == null) {
+            return;
+        }
+
+        boolean wasCompleted = Orders.COMPLETED.equals(ordersDB.getStatus());
+        boolean isCompleted = Orders.COMPLETED.equals(status);
+        if (wasCompleted == isCompleted) {
+            return;
+        }
+
+        BigDecimal amount = ordersDB.getAmount() == null ? BigDecimal.ZERO : ordersDB.getAmount();
+        int validOrderDelta = isCompleted ? 1 : -1;
+        BigDecimal turnoverDelta = isCompleted ? amount : amount.negate();
+
+        //今天的数据直接查订单表，只有已结算的历史日期需要修正
+        LocalDate orderDate = ordersDB.getOrderTime().toLocalDate();
+        if (orderDate.isBefore(LocalDate.now())) {
+            businessDailyStatsMapper.updateValidOrderDelta(orderDate, validOrderDelta, turnoverDelta);
+        }
+    }
+}
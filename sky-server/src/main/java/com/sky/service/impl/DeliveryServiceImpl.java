@@ -0,0 +1,169 @@
+package com.sky.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.entity.AddressBook;
+import com.sky.exception.OrderBusinessException;
+import com.sky.service.DeliveryService;
+import com.sky.service.GeoService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.text.Normalizer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配送范围校验
+ * 地址坐标和路线距离先查本地缓存，再查redis，都未命中才调用地图服务
+ */
+@Service
+@Slf4j
+public class DeliveryServiceImpl implements DeliveryService {
+
+    //地址坐标缓存key前缀
+    public static final String ADDRESS_KEY_PREFIX = "geo:addr:";
+
+    //路线距离缓存key前缀
+    public static final String DISTANCE_KEY_PREFIX = "geo:dist:";
+
+    @Autowired
+    private GeoService geoService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${sky.shop.address}")
+    private String shopAddress;
+
+    @Value("${sky.geo.max-distance:5000}")
+    private Integer maxDistance;
+
+    @Value("${sky.geo.local-cache-size:10000}")
+    private Integer localCacheSize;
+
+    @Value("${sky.geo.cache-ttl-days:30}")
+    private Integer cacheTtlDays;
+
+    //店铺坐标，启动时解析一次
+    private volatile String shopCoordinate;
+
+    private Cache<String, String> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(cacheTtlDays, TimeUnit.DAYS)
+                .build();
+
+        try {
+            shopCoordinate = geoService.geocode(shopAddress);
+        } catch (Exception e) {
+            log.error("店铺地址解析异常，将在下单时重试", e);
+        }
+        log.info("店铺坐标：{}", shopCoordinate);
+    }
+
+    /**
+     * 检查收货地址是否超出配送范围，超出时抛出业务异常
+     * @param addressBook
+     */
+    public void checkOutOfRange(AddressBook addressBook) {
+        String shop = getShopCoordinate();
+        if (shop == null) {
+            throw new OrderBusinessException("店铺地址解析失败");
+        }
+
+        String address = addressBook.getCityName() + addressBook.getDistrictName() + addressBook.getDetail();
+        String addressKey = ADDRESS_KEY_PREFIX + normalize(address);
+        String userCoordinate = getCached(addressKey);
+        if (userCoordinate == null) {
+            userCoordinate = geoService.geocode(address);
+            if (userCoordinate == null) {
+                throw new OrderBusinessException("收货地址解析失败");
+            }
+            putCached(addressKey, userCoordinate);
+        }
+
+        String distanceKey = DISTANCE_KEY_PREFIX + shop + "|" + userCoordinate;
+        String distance = getCached(distanceKey);
+        if (distance == null) {
+            Integer routeDistance = geoService.drivingDistance(shop, userCoordinate);
+            if (routeDistance == null) {
+                throw new OrderBusinessException("配送路线规划失败");
+            }
+            distance = routeDistance.toString();
+            putCached(distanceKey, distance);
+        }
+
+        if (Integer.parseInt(distance) > maxDistance) {
+            //配送距离超过上限
+            throw new OrderBusinessException("超出配送范围");
+        }
+    }
+
+    /**
+     * 获取店铺坐标，启动时解析失败则在这里补偿解析
+     * @return
+     */
+    private String getShopCoordinate() {
+        if (shopCoordinate == null) {
+            synchronized (this) {
+                if (shopCoordinate == null) {
+                    shopCoordinate = geoService.geocode(shopAddress);
+                }
+            }
+        }
+        return shopCoordinate;
+    }
+
+    /**
+     * 依次查询本地缓存和redis，redis命中时回填本地缓存
+     * @param key
+     * @return
+     */
+    private String getCached(String key) {
+        String value = localCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        try {
+            value = stringRedisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("读取地址缓存失败：{}", key, e);
+            return null;
+        }
+        if (value != null) {
+            localCache.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 同时写入本地缓存和redis
+     * @param key
+     * @param value
+     */
+    private void putCached(String key, String value) {
+        localCache.put(key, value);
+        try {
+            stringRedisTemplate.opsForValue().set(key, value, cacheTtlDays, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.warn("写入地址缓存失败：{}", key, e);
+        }
+    }
+
+    /**
+     * 规范化地址：全角转半角、去除空白、统一小写，使同一地址的不同写法命中同一个key
+     * @param address
+     * @return
+     */
+    private String normalize(String address) {
+        String normalized = Normalizer.normalize(address, Normalizer.Form.NFKC);
+        return normalized.replaceAll("\\s+", "").toLowerCase();
+    }
+}
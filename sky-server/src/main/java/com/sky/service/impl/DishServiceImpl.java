@@ -17,6 +17,7 @@ import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.DishService;
+import com.sky.service.MenuSnapshotService;
 import com.sky.vo.DishVO;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -28,7 +29,10 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -45,6 +49,9 @@ public class DishServiceImpl implements DishService {
     @Autowired
     private SetmealMapper setmealMapper;
 
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
+
     /**
      * 新增菜品和对应的口味
      * @param dishDTO
@@ -70,6 +77,8 @@ public class DishServiceImpl implements DishService {
             });
             dishFlavorMapper.insertBatch(flavors);
         }
+
+        menuSnapshotService.invalidate();
     }
 
     /**
@@ -125,6 +134,7 @@ public class DishServiceImpl implements DishService {
         //sql:delete from dish_flavor where dish_id in (?,?,?)
         dishFlavorMapper.deleteByDishIds(ids);
 
+        menuSnapshotService.invalidate();
     }
 
     /**
@@ -148,6 +158,19 @@ public class DishServiceImpl implements DishService {
         return dishVO;
     }
 
+    /**
+     * 根据id批量查询菜品及其口味，菜品和口味各查询一次
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<DishVO> getByIdsWithFlavor(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return toDishVOList(dishMapper.getByIds(ids));
+    }
+
     @Override
     public void updateWithFlavor(DishDTO dishDTO) {
         //更新菜品表
@@ -165,6 +188,8 @@ public class DishServiceImpl implements DishService {
             });
             dishFlavorMapper.insertBatch(flavors);
         }
+
+        menuSnapshotService.invalidate();
     }
 
     /**
@@ -188,20 +213,43 @@ public class DishServiceImpl implements DishService {
      */
     public List<DishVO> listWithFlavor(Dish dish) {
         List<Dish> dishList = dishMapper.list(dish);
+        return toDishVOList(dishList);
+    }
+
+    /**
+     * 查询所有起售中的菜品和口味，按分类分组，不论分类多少都只执行两次查询
+     * @return key为分类id，分类内的菜品顺序与listWithFlavor一致
+     */
+    @Override
+    public Map<Long, List<DishVO>> listEnabledWithFlavorGroupByCategory() {
+        Dish dish = Dish.builder()
+                .status(StatusConstant.ENABLE)
+                .build();
+        return listWithFlavor(dish).stream()
+                .collect(Collectors.groupingBy(DishVO::getCategoryId, LinkedHashMap::new, Collectors.toList()));
+    }
 
-        List<DishVO> dishVOList = new ArrayList<>();
+    /**
+     * 菜品转换为DishVO并填充口味，口味通过一次批量查询后在内存中按菜品id分组，避免每个菜品查询一次
+     * @param dishList
+     * @return
+     */
+    private List<DishVO> toDishVOList(List<Dish> dishList) {
+        if (dishList.isEmpty()) {
+            return new ArrayList<>();
+        }
 
+        List<Long> dishIds = dishList.stream().map(Dish::getId).collect(Collectors.toList());
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorMapper.getByDishIds(dishIds).stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
+
+        List<DishVO> dishVOList = new ArrayList<>(dishList.size());
         for (Dish d : dishList) {
             DishVO dishVO = new DishVO();
             BeanUtils.copyProperties(d,dishVO);
-
-            //根据菜品id查询对应的口味
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
-
-            dishVO.setFlavors(flavors);
+            dishVO.setFlavors(flavorMap.getOrDefault(d.getId(), new ArrayList<>()));
             dishVOList.add(dishVO);
         }
-
         return dishVOList;
     }
 
@@ -234,6 +282,8 @@ public class DishServiceImpl implements DishService {
                 }
             }
         }
+
+        menuSnapshotService.invalidate();
     }
 
 }
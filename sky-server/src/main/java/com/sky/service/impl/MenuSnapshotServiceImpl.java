@@ -0,0 +1,184 @@
+package com.sky.service.impl;
+
+import com.sky.cache.MenuSnapshot;
+import com.sky.entity.Category;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.result.Result;
+import com.sky.service.CategoryService;
+import com.sky.service.DishService;
+import com.sky.service.MenuSnapshotService;
+import com.sky.vo.DishVO;
+import com.sky.vo.MenuSetmealVO;
+import com.sky.vo.MenuSnapshotVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 菜单快照，把分类、菜品、套餐一次性生成一个压缩好的JSON文档，客户端通过ETag协商缓存
+ * 菜单修改后本节点版本号加1，并通过redis频道通知其他节点，下次请求时重新生成
+ */
+@Service
+@Slf4j
+public class MenuSnapshotServiceImpl implements MenuSnapshotService, MessageListener {
+
+    //菜单修改通知使用的redis频道
+    public static final String TOPIC = "sky:menu:changed";
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private DishService dishService;
+
+    @Autowired
+    private SetmealMapper setmealMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    //快照最长保留时间，兜底丢失修改通知的情况，单位秒
+    @Value("${sky.menu.snapshot-max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    private final JacksonObjectMapper objectMapper = new JacksonObjectMapper();
+
+    //当前节点标识，忽略自己发出的通知
+    private final String nodeId = UUID.randomUUID().toString();
+
+    //菜单版本号，每次修改加1
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile MenuSnapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(TOPIC));
+    }
+
+    /**
+     * 获取当前的菜单快照，快照已过期时只由一个线程重新生成，期间其他请求等待
+     * @return
+     */
+    public MenuSnapshot getSnapshot() {
+        MenuSnapshot current = snapshot;
+        if (isFresh(current)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (isFresh(current)) {
+                return current;
+            }
+            current = build(version.get());
+            snapshot = current;
+            return current;
+        }
+    }
+
+    /**
+     * 菜单已修改，在当前事务提交后使所有节点的快照失效
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+            });
+        } else {
+            invalidateNow();
+        }
+    }
+
+    /**
+     * 收到其他节点的菜单修改通知
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!nodeId.equals(new String(message.getBody()))) {
+            version.incrementAndGet();
+        }
+    }
+
+    private void invalidateNow() {
+        version.incrementAndGet();
+        try {
+            stringRedisTemplate.convertAndSend(TOPIC, nodeId);
+        } catch (Exception e) {
+            //通知失败时其他节点的快照在过期后重新生成
+            log.error("发布菜单修改通知失败", e);
+        }
+    }
+
+    private boolean isFresh(MenuSnapshot current) {
+        return current != null
+                && current.getVersion() == version.get()
+                && System.currentTimeMillis() - current.getCreateTime() < TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+    }
+
+    /**
+     * 查询完整菜单并生成快照，共执行4次查询
+     * 生成期间菜单再次修改时版本号已变化，下次请求会重新生成
+     * @param currentVersion
+     * @return
+     */
+    private MenuSnapshot build(long currentVersion) {
+        long start = System.currentTimeMillis();
+
+        List<Category> categories = categoryService.list(null);
+        Map<Long, List<DishVO>> dishes = dishService.listEnabledWithFlavorGroupByCategory();
+        Map<Long, List<MenuSetmealVO>> setmeals = setmealMapper.listEnabledWithDishItem().stream()
+                .collect(Collectors.groupingBy(MenuSetmealVO::getCategoryId, LinkedHashMap::new, Collectors.toList()));
+
+        MenuSnapshotVO menuSnapshotVO = MenuSnapshotVO.builder()
+                .categories(categories)
+                .dishes(dishes)
+                .setmeals(setmeals)
+                .build();
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Result.success(menuSnapshotVO));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            //菜单内容不变时ETag不变，客户端可以继续使用本地的快照
+            String etag = "W/\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            MenuSnapshot menuSnapshot = new MenuSnapshot(currentVersion, start, json, out.toByteArray(), etag);
+            log.info("菜单快照生成完成，{}字节，压缩后{}字节，ETag：{}，耗时{}ms",
+                    json.length, menuSnapshot.getGzip().length, etag, System.currentTimeMillis() - start);
+            return menuSnapshot;
+        } catch (IOException e) {
+            throw new IllegalStateException("菜单快照序列化失败", e);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.sky.service.impl;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
@@ -15,21 +14,24 @@ import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.*;
 import com.sky.result.PageResult;
+import com.sky.service.BusinessDailyStatsService;
+import com.sky.service.DeliveryService;
+import com.sky.service.OrderTimeoutService;
 import com.sky.service.OrdersService;
-import com.sky.utils.HttpClientUtil;
+import com.sky.service.ShoppingCartService;
+import com.sky.utils.OrderNumberGenerator;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
-import com.sky.websocket.WebSocketServer;
+import com.sky.websocket.WebSocketMessageBroker;
 import io.swagger.util.Json;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -52,28 +54,36 @@ public class OrderServiceImpl implements OrdersService {
     private AddressBookMapper addressBookMapper;
 
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartService shoppingCartService;
+
+    @Autowired
+    private OrderTimeoutService orderTimeoutService;
+
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
 
     @Autowired
     private UserMapper userMapper;
     @Autowired
     private WeChatPayUtil weChatPayUtil;
 
-    @Value("${sky.shop.address}")
-    private String shopAddress;
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-    @Value("${sky.baidu.ak}")
-    private String ak;
+    @Autowired
+    private WebSocketMessageBroker webSocketMessageBroker;
 
     @Autowired
-    private WebSocketServer webSocketServer;
+    private BusinessDailyStatsService businessDailyStatsService;
 
     /**
      * 用户下单
      * @param ordersSubmitDTO
      * @return
      */
-    @Transactional
     public OrderSubmitVO submitOrder(OrdersSubmitDTO ordersSubmitDTO){
 
         //1.处理各种业务异常（地址簿为空，购物车数据为空）
@@ -83,26 +93,42 @@ public class OrderServiceImpl implements OrdersService {
             throw new AddressBookBusinessException(MessageConstant.ADDRESS_BOOK_IS_NULL);
         }
 
-        //检查用户的收货地址是否超出配送范围
-        checkOutOfRange(addressBook.getCityName() + addressBook.getDistrictName() + addressBook.getDetail());
+        //检查用户的收货地址是否超出配送范围，远程调用放在事务之外，避免占用数据库连接
+        deliveryService.checkOutOfRange(addressBook);
 
         //查询当前用户购物车数据 拦截器中，用户ID保存到了ThreadLocal中。这样，在接下来的业务代码中，你就可以通过BaseContext.getCurrentId()轻松地获取当前用户的ID信息了
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = new ShoppingCart();
-        shoppingCart.setUserId(userId);
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> shoppingCartList = shoppingCartService.listByUserId(userId);
         if (shoppingCartList == null || shoppingCartList.size() == 0){
             //抛出业务异常,购物车为空
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
 
+        OrderSubmitVO orderSubmitVO = transactionTemplate.execute(status -> createOrder(ordersSubmitDTO, addressBook, shoppingCartList));
+
+        //订单提交成功后清空当前用户的购物车数据，并登记支付超时
+        shoppingCartService.cleanByUserId(userId);
+        orderTimeoutService.schedule(orderSubmitVO.getId(), orderSubmitVO.getOrderTime());
+        return orderSubmitVO;
+    }
+
+    /**
+     * 创建订单，插入订单和订单明细
+     * @param ordersSubmitDTO
+     * @param addressBook
+     * @param shoppingCartList
+     * @return
+     */
+    private OrderSubmitVO createOrder(OrdersSubmitDTO ordersSubmitDTO, AddressBook addressBook, List<ShoppingCart> shoppingCartList) {
+        Long userId = BaseContext.getCurrentId();
+
         //2.向订单表插入1条订单数据
         Orders orders = new Orders();
         BeanUtils.copyProperties(ordersSubmitDTO, orders);
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
         orders.setStatus(Orders.PENDING_PAYMENT);
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        orders.setNumber(orderNumberGenerator.nextNumber());
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
         orders.setUserId(userId);
@@ -119,10 +145,7 @@ public class OrderServiceImpl implements OrdersService {
 
         orderDetailMapper.insertBatch(orderDetailList);
 
-        //4.清空当前用户的购物车数据
-        shoppingCartMapper.deleteByUserId(userId);
-
-        //5.封装VO返回结果
+        //4.封装VO返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
                 .id(orders.getId())
                 .orderTime(orders.getOrderTime())
@@ -183,6 +206,8 @@ public class OrderServiceImpl implements OrdersService {
                 .build();
 
         orderMapper.update(orders);
+        businessDailyStatsService.onOrderStatusChange(ordersDB, orders.getStatus());
+        orderTimeoutService.unschedule(ordersDB.getId());
 
         //通过websocket向客户端浏览器推送消息 typeorderId Content
         Map map = new HashMap<>();
@@ -191,7 +216,7 @@ public class OrderServiceImpl implements OrdersService {
         map.put("content", "订单号：" + outTradeNo);//把订单号拼进去
 
         String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
+        webSocketMessageBroker.sendToShop(ordersDB.getId(), json);
 
     }
 
@@ -217,15 +242,13 @@ public class OrderServiceImpl implements OrdersService {
 
         // 查询出订单明细，并封装入OrderVO进行响应
         if (page != null && page.getTotal() > 0) {
-            for (Orders orders : page) {
-                Long orderId = orders.getId();// 订单id
-
-                // 查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orderId);
+            // 一次查询出当前页所有订单的明细，避免每个订单单独查一次
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(page);
 
+            for (Orders orders : page) {
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                orderVO.setOrderDetailList(orderDetails);
+                orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
 
                 list.add(orderVO);
             }
@@ -293,6 +316,8 @@ public class OrderServiceImpl implements OrdersService {
         orders.setCancelReason("用户取消");
         orders.setCancelTime(LocalDateTime.now());
         orderMapper.update(orders);
+        businessDailyStatsService.onOrderStatusChange(ordersDB, orders.getStatus());
+        orderTimeoutService.unschedule(ordersDB.getId());
     }
 
     /**
@@ -318,8 +343,8 @@ public class OrderServiceImpl implements OrdersService {
             return shoppingCart;
         }).collect(Collectors.toList());
 
-        // 将购物车对象批量添加到数据库
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        // 将购物车对象批量添加到购物车
+        shoppingCartService.addBatch(userId, shoppingCartList);
     }
 
     /**
@@ -344,11 +369,14 @@ public class OrderServiceImpl implements OrdersService {
 
         List<Orders> ordersList = page.getResult();
         if (!CollectionUtils.isEmpty(ordersList)) {
+            // 一次查询出当前页所有订单的明细，按订单id分组
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+
             for (Orders orders : ordersList) {
                 // 将共同字段复制到OrderVO
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                String orderDishes = getOrderDishesStr(orders);
+                String orderDishes = getOrderDishesStr(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
 
                 // 将订单菜品信息封装到orderVO中，并添加到orderVOList
                 orderVO.setOrderDishes(orderDishes);
@@ -359,14 +387,27 @@ public class OrderServiceImpl implements OrdersService {
     }
 
     /**
-     * 根据订单id获取菜品信息字符串
-     * @param orders
+     * 批量查询订单明细，并按订单id分组
+     * @param ordersList
      * @return
      */
-    private String getOrderDishesStr(Orders orders) {
-        // 查询订单菜品详情信息（订单中的菜品和数量）
-        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(orders.getId());
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList) {
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        if (orderIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        // select * from order_detail where order_id in (?,?,?)
+        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderIds(orderIds);
+        return orderDetailList.stream().collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
 
+    /**
+     * 根据订单明细获取菜品信息字符串
+     * @param orderDetailList
+     * @return
+     */
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
         // 将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
         List<String> orderDishList = orderDetailList.stream().map(x -> {
             String orderDish = x.getName() + "*" + x.getNumber() + ";";
@@ -441,6 +482,7 @@ public class OrderServiceImpl implements OrdersService {
         orders.setCancelTime(LocalDateTime.now());
 
         orderMapper.update(orders);
+        businessDailyStatsService.onOrderStatusChange(ordersDB, orders.getStatus());
     }
 
     /**
@@ -470,6 +512,7 @@ public class OrderServiceImpl implements OrdersService {
         orders.setCancelReason(ordersCancelDTO.getCancelReason());
         orders.setCancelTime(LocalDateTime.now());
         orderMapper.update(orders);
+        businessDailyStatsService.onOrderStatusChange(ordersDB, orders.getStatus());
     }
 
     /**
@@ -513,6 +556,7 @@ public class OrderServiceImpl implements OrdersService {
         orders.setDeliveryTime(LocalDateTime.now());
 
         orderMapper.update(orders);
+        businessDailyStatsService.onOrderStatusChange(ordersDB, orders.getStatus());
     }
 
     /**
@@ -536,72 +580,8 @@ public class OrderServiceImpl implements OrdersService {
         map.put("content", "订单号：" + ordersDB.getNumber());//把订单号拼进去
 
         String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
-
-    }
-
-    /**
-     * 检查客户的收货地址是否超出配送范围
-     * @param address
-     */
-    private void checkOutOfRange(String address) {
-        Map map = new HashMap();
-        map.put("address",shopAddress);
-        map.put("output","json");
-        map.put("ak",ak);
-
-        //获取店铺的经纬度坐标
-        String shopCoordinate = HttpClientUtil.doGet("https://api.map.baidu.com/geocoding/v3", map);
-
-        JSONObject jsonObject = JSON.parseObject(shopCoordinate);
-        if(!jsonObject.getString("status").equals("0")){
-            throw new OrderBusinessException("店铺地址解析失败");
-        }
+        webSocketMessageBroker.sendToShop(ordersDB.getId(), json);
 
-        //数据解析
-        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
-        String lat = location.getString("lat");
-        String lng = location.getString("lng");
-        //店铺经纬度坐标
-        String shopLngLat = lat + "," + lng;
-
-        map.put("address",address);
-        //获取用户收货地址的经纬度坐标
-        String userCoordinate = HttpClientUtil.doGet("https://api.map.baidu.com/geocoding/v3", map);
-
-        jsonObject = JSON.parseObject(userCoordinate);
-        if(!jsonObject.getString("status").equals("0")){
-            throw new OrderBusinessException("收货地址解析失败");
-        }
-
-        //数据解析
-        location = jsonObject.getJSONObject("result").getJSONObject("location");
-        lat = location.getString("lat");
-        lng = location.getString("lng");
-        //用户收货地址经纬度坐标
-        String userLngLat = lat + "," + lng;
-
-        map.put("origin",shopLngLat);
-        map.put("destination",userLngLat);
-        map.put("steps_info","0");
-
-        //路线规划
-        String json = HttpClientUtil.doGet("https://api.map.baidu.com/directionlite/v1/driving", map);
-
-        jsonObject = JSON.parseObject(json);
-        if(!jsonObject.getString("status").equals("0")){
-            throw new OrderBusinessException("配送路线规划失败");
-        }
-
-        //数据解析
-        JSONObject result = jsonObject.getJSONObject("result");
-        JSONArray jsonArray = (JSONArray) result.get("routes");
-        Integer distance = (Integer) ((JSONObject) jsonArray.get(0)).get("distance");
-
-        if(distance > 5000){
-            //配送距离超过5000米
-            throw new OrderBusinessException("超出配送范围");
-        }
     }
 
 }
@@ -0,0 +1,175 @@
+package com.sky.service.impl;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.service.OrderTimeoutService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 基于redis有序集合的订单支付超时延时队列
+ * order:timeout 中成员为订单id，分数为到期时间；到期的订单被某个节点领取后移入 order:timeout:lease，
+ * 分数为租约到期时间，处理完成后删除。节点在处理中宕机时，租约到期的订单会重新放回队列
+ */
+@Service
+@Slf4j
+public class OrderTimeoutServiceImpl implements OrderTimeoutService {
+
+    //待到期订单队列
+    public static final String QUEUE_KEY = "order:timeout";
+
+    //已被领取正在处理的订单
+    public static final String LEASE_KEY = "order:timeout:lease";
+
+    //每次最多领取的订单数
+    private static final int CLAIM_SIZE = 100;
+
+    //租约时长，单位毫秒
+    private static final long LEASE_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    //重建队列时每批写入的订单数
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    //先把租约过期的订单放回队列，再原子地领取到期订单并登记租约，保证每个订单同一时刻只有一个节点处理
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1])\n" +
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now)\n" +
+            "for _, id in ipairs(expired) do\n" +
+            "  redis.call('ZREM', KEYS[2], id)\n" +
+            "  redis.call('ZADD', KEYS[1], now, id)\n" +
+            "end\n" +
+            "local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, tonumber(ARGV[2]))\n" +
+            "for _, id in ipairs(ids) do\n" +
+            "  redis.call('ZREM', KEYS[1], id)\n" +
+            "  redis.call('ZADD', KEYS[2], now + tonumber(ARGV[3]), id)\n" +
+            "end\n" +
+            "return ids", List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Value("${sky.order.pay-timeout-minutes:15}")
+    private long payTimeoutMinutes;
+
+    /**
+     * 登记待支付订单，下单时间加上支付时限后自动取消
+     * @param orderId
+     * @param orderTime
+     */
+    public void schedule(Long orderId, LocalDateTime orderTime) {
+        try {
+            stringRedisTemplate.opsForZSet().add(QUEUE_KEY, orderId.toString(), getExpireTime(orderTime));
+        } catch (Exception e) {
+            //登记失败时由OrderTask的兜底扫描取消
+            log.error("登记订单支付超时失败，订单：{}", orderId, e);
+        }
+    }
+
+    /**
+     * 订单已支付或已取消，移除登记
+     * @param orderId
+     */
+    public void unschedule(Long orderId) {
+        try {
+            stringRedisTemplate.opsForZSet().remove(QUEUE_KEY, orderId.toString());
+        } catch (Exception e) {
+            //移除失败不影响业务，到期时订单已不是待支付状态，不会被取消
+            log.warn("移除订单支付超时登记失败，订单：{}", orderId, e);
+        }
+    }
+
+    /**
+     * 取消已到期的订单
+     * @return 取消的订单数
+     */
+    @SuppressWarnings("unchecked")
+    public int processDue() {
+        int cancelled = 0;
+        while (true) {
+            List<String> claimed = stringRedisTemplate.execute(CLAIM_SCRIPT, Arrays.asList(QUEUE_KEY, LEASE_KEY),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(CLAIM_SIZE), String.valueOf(LEASE_MILLIS));
+            if (claimed == null || claimed.isEmpty()) {
+                return cancelled;
+            }
+
+            List<Long> ids = claimed.stream().map(Long::valueOf).collect(Collectors.toList());
+            Orders orders = Orders.builder()
+                    .status(Orders.CANCELLED)
+                    .cancelReason("订单超时，自动取消")
+                    .cancelTime(LocalDateTime.now())
+                    .build();
+            //只取消仍处于待付款状态的订单，已支付或已取消的订单不受影响
+            int count = orderMapper.updateStatusByIds(ids, Orders.PENDING_PAYMENT, orders);
+            cancelled += count;
+            log.info("订单支付超时，取消订单{}个，到期订单：{}", count, ids);
+
+            stringRedisTemplate.opsForZSet().remove(LEASE_KEY, claimed.toArray());
+            if (claimed.size() < CLAIM_SIZE) {
+                return cancelled;
+            }
+        }
+    }
+
+    /**
+     * 支付超时的下单时间界限，和延时队列使用同一个支付时限
+     * @return
+     */
+    public LocalDateTime getExpiredOrderTime() {
+        return LocalDateTime.now().minusMinutes(payTimeoutMinutes);
+    }
+
+    /**
+     * 应用启动后根据数据库中的待支付订单重建延时队列，已在队列中的订单保持不变
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<Orders> ordersList = orderMapper.getIdAndOrderTimeByStatus(Orders.PENDING_PAYMENT);
+            ZSetOperations<String, String> zSetOperations = stringRedisTemplate.opsForZSet();
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            for (Orders orders : ordersList) {
+                tuples.add(new DefaultTypedTuple<>(orders.getId().toString(), getExpireTime(orders.getOrderTime())));
+                if (tuples.size() == REBUILD_BATCH_SIZE) {
+                    zSetOperations.addIfAbsent(QUEUE_KEY, tuples);
+                    tuples.clear();
+                }
+            }
+            if (!tuples.isEmpty()) {
+                zSetOperations.addIfAbsent(QUEUE_KEY, tuples);
+            }
+            log.info("订单支付超时队列重建完成，待支付订单{}个", ordersList.size());
+        } catch (Exception e) {
+            log.error("订单支付超时队列重建失败", e);
+        }
+    }
+
+    /**
+     * 订单到期时间，毫秒时间戳
+     * @param orderTime
+     * @return
+     */
+    private double getExpireTime(LocalDateTime orderTime) {
+        return orderTime.plusMinutes(payTimeoutMinutes).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
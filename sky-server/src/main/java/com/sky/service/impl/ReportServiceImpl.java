@@ -1,15 +1,24 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderDailyDTO;
+import com.sky.entity.BusinessDailyStats;
 import com.sky.entity.Orders;
+import com.sky.exception.ReportBusinessException;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessDailyStatsService;
 import com.sky.service.ReportService;
-import com.sky.service.WorkspaceService;
 import com.sky.vo.*;
 import io.swagger.models.auth.In;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -23,6 +32,8 @@ import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +44,21 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ReportServiceImpl implements ReportService {
 
+    //SXSSF内存中保留的行数，超出的行写入临时文件
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    //模板中明细数据的第一行（第8行）和最后一列
+    private static final int DETAIL_FIRST_ROW = 7;
+    private static final int DETAIL_LAST_CELL = 6;
+
+    //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+    private static final String[] STATUS_NAMES = {"", "待付款", "待接单", "已接单", "派送中", "已完成", "已取消"};
+
+    //单次导出最多366天，区间过长时每日数据和订单明细都会很大
+    private static final int MAX_EXPORT_DAYS = 366;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     @Autowired
     private OrderMapper orderMapper;
 
@@ -40,7 +66,7 @@ public class ReportServiceImpl implements ReportService {
     private UserMapper userMapper;
 
     @Autowired
-    private WorkspaceService workspaceService; //service层除了调mapper也可以调用其他service方法
+    private BusinessDailyStatsService businessDailyStatsService;
     /**
      * 统计指定时间区间内的营业额数据
      * @param begin
@@ -50,34 +76,24 @@ public class ReportServiceImpl implements ReportService {
     public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
 
         //存放begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
+        List<LocalDate> dateList = getDateList(begin, end);
 
-        while (!begin.equals(end)){
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        //select date(order_time), sum(...) from orders where order_time > ? and order_time < ? group by date(order_time)
+        //一条sql查出整个区间每天的数据，而不是每天查一次
+        Map<LocalDate, OrderDailyDTO> orderDailyMap = getOrderDailyMap(begin, end);
 
         List<Double> turnoverList = new ArrayList<>();
-        for (LocalDate data : dateList) {
-            //查询date日期对应的营业额数据（已完成的）
-            LocalDateTime beginTime = LocalDateTime.of(data, LocalTime.from(LocalDateTime.MIN));//传换成当天0点0分0秒
-            LocalDateTime endTime = LocalDateTime.of(data, LocalTime.from(LocalDateTime.MAX));//当天24点
-
-            //select sum(amount) from orders where order_time > ? and order_time < ? and status= 5
-            Map map = new HashMap<>();
-            map.put("begin", beginTime);
-            map.put("end", endTime);
-            map.put("status", Orders.COMPLETED);
-            Double turnover = orderMapper.sumByMap(map);
-            turnover = turnover == null ? 0.0 : turnover; //如果查不到说明当日没订单，那应该把销售额改成0.0
+        for (LocalDate date : dateList) {
+            OrderDailyDTO orderDaily = orderDailyMap.get(date);
+            //如果查不到说明当日没订单，那应该把销售额改成0.0
+            Double turnover = orderDaily == null || orderDaily.getTurnover() == null ? 0.0 : orderDaily.getTurnover();
             turnoverList.add(turnover);
         }
 
         return TurnoverReportVO
                 .builder().
                 dateList(StringUtils.join(dateList, ","))
-                .turnoverList(StringUtils.join(turnoverList))
+                .turnoverList(StringUtils.join(turnoverList, ","))
                 .build();
     }
 
@@ -90,32 +106,27 @@ public class ReportServiceImpl implements ReportService {
     @Override
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
         //存放begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
+        List<LocalDate> dateList = getDateList(begin, end);
 
-        dateList.add(begin);
-        while (!begin.equals(end)){
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
 
-        //存放每天新增用户数量 select count(id) from user where creat_time > ? and creat_time < ?
-        List<Integer> newUserList = new ArrayList<>();
-        //存放每天总用户数量 select count(id) from user where creat_time < ?
-        List<Integer> totalUserList = new ArrayList<>();
+        //区间开始之前的用户总量 select count(id) from user where create_time < ?
+        Map map = new HashMap<>();
+        map.put("end", beginTime);
+        Integer baseUser = userMapper.countByMap(map);
 
-        for (LocalDate data : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(data, LocalTime.from(LocalDateTime.MIN));//转换成当天0点0分0秒
-            LocalDateTime endTime = LocalDateTime.of(data, LocalTime.from(LocalDateTime.MAX));//当天24点
+        //区间内每天新增的用户数量
+        Map<LocalDate, Integer> newUserMap = getNewUserMap(begin, end);
 
-            //select count(id) from user where creat_time < ?
-            Map map = new HashMap<>();
-            map.put("end", endTime);
-            //总用户数量
-            Integer totalUser = userMapper.countByMap(map);
+        //存放每天新增用户数量
+        List<Integer> newUserList = new ArrayList<>();
+        //存放每天总用户数量，由区间开始前的总量依次累加每天新增得到
+        List<Integer> totalUserList = new ArrayList<>();
 
-            map.put("begin", beginTime);
-            //新增用户数量
-            Integer newUser = userMapper.countByMap(map);
+        int totalUser = baseUser == null ? 0 : baseUser;
+        for (LocalDate date : dateList) {
+            Integer newUser = newUserMap.getOrDefault(date, 0);
+            totalUser += newUser;
 
             totalUserList.add(totalUser);
             newUserList.add(newUser);
@@ -138,36 +149,25 @@ public class ReportServiceImpl implements ReportService {
     @Override
     public OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end) {
         //存放begin到end范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
+        List<LocalDate> dateList = getDateList(begin, end);
 
-        dateList.add(begin);
-        while (!begin.equals(end)){
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        //一条sql查出区间内每天的订单数和有效订单数
+        Map<LocalDate, OrderDailyDTO> orderDailyMap = getOrderDailyMap(begin, end);
 
         List<Integer> orderCountList = new ArrayList<>();
         List<Integer> validOrderCountList = new ArrayList<>();
 
-        for (LocalDate data : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(data, LocalTime.from(LocalDateTime.MIN));//转换成当天0点0分0秒
-            LocalDateTime endTime = LocalDateTime.of(data, LocalTime.from(LocalDateTime.MAX));//当天24点
-
-            //查询每天的订单数
-            //select count(id) from orders where order_time > ? and order_time < ?
-            Integer orderCount = getOrderCount(beginTime, endTime, null);
-            //查询每天有效订单数
-            //select count(id) from orders where order_time > ? and order_time < ? and status = ?
-            Integer validOrderCount = getOrderCount(beginTime, endTime, Orders.COMPLETED);
-
-            orderCountList.add(orderCount);
-            validOrderCountList.add(validOrderCount);
+        for (LocalDate date : dateList) {
+            OrderDailyDTO orderDaily = orderDailyMap.get(date);
+            //当日没有订单的日期补0
+            orderCountList.add(orderDaily == null ? 0 : orderDaily.getOrderCount());
+            validOrderCountList.add(orderDaily == null ? 0 : orderDaily.getValidOrderCount());
         }
 
         //计算时间区间内的订单总数量
-        Integer totalOrderCount = orderCountList.stream().reduce(Integer::sum).get();
+        Integer totalOrderCount = orderCountList.stream().reduce(0, Integer::sum);
         //计算时间区间内的有效时订单数量
-        Integer validOrderCount = validOrderCountList.stream().reduce(Integer::sum).get();
+        Integer validOrderCount = validOrderCountList.stream().reduce(0, Integer::sum);
 
         //极端订单完成率
         Double orderCompletionRate = 0.0;
@@ -220,32 +220,68 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 导出运营数据报表
+     * 导出运营数据报表，默认导出最近30天
      * @param response
      */
     @Override
     public void exportBusinessData(HttpServletResponse response) {
-        //1. 插叙那数据库，获取营业数据
-        LocalDate dateBegin = LocalDate.now().minusDays(30); //今天的30天前
-        LocalDate dateEnd = LocalDate.now().minusDays(1);
+        exportBusinessData(LocalDate.now().minusDays(30), LocalDate.now().minusDays(1), false, response);
+    }
+
+    /**
+     * 导出指定时间区间的运营数据报表
+     * 每日数据通过按天分组的查询一次取出，明细行通过SXSSF流式写出，内存中只保留窗口内的行
+     * @param dateBegin
+     * @param dateEnd
+     * @param withOrderDetail 是否导出订单明细sheet
+     * @param response
+     */
+    @Override
+    public void exportBusinessData(LocalDate dateBegin, LocalDate dateEnd, boolean withOrderDetail, HttpServletResponse response) {
+        if (dateBegin.isAfter(dateEnd)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_INVALID);
+        }
+        if (ChronoUnit.DAYS.between(dateBegin, dateEnd) + 1 > MAX_EXPORT_DAYS) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_TOO_LONG);
+        }
 
-        LocalDateTime beginTime = LocalDateTime.of(dateBegin, LocalTime.from(LocalDateTime.MIN));//转换成当天0点0分0秒
-        LocalDateTime endTime = LocalDateTime.of(dateEnd, LocalTime.from(LocalDateTime.MAX));//当天24点
+        //1. 查询数据库，获取每天的营业数据
+        List<LocalDate> dateList = getDateList(dateBegin, dateEnd);
+        Map<LocalDate, OrderDailyDTO> orderDailyMap = getOrderDailyMap(dateBegin, dateEnd);
+        Map<LocalDate, Integer> newUserMap = getNewUserMap(dateBegin, dateEnd);
+
+        List<BusinessDataVO> businessDataList = new ArrayList<>();
+        int totalOrderCount = 0;
+        int validOrderCount = 0;
+        int newUsers = 0;
+        double turnover = 0.0;
+        for (LocalDate date : dateList) {
+            OrderDailyDTO orderDaily = orderDailyMap.get(date);
+            int dayOrderCount = orderDaily == null ? 0 : orderDaily.getOrderCount();
+            int dayValidOrderCount = orderDaily == null ? 0 : orderDaily.getValidOrderCount();
+            double dayTurnover = orderDaily == null || orderDaily.getTurnover() == null ? 0.0 : orderDaily.getTurnover();
+            int dayNewUsers = newUserMap.getOrDefault(date, 0);
+
+            businessDataList.add(buildBusinessData(dayOrderCount, dayValidOrderCount, dayTurnover, dayNewUsers));
+
+            totalOrderCount += dayOrderCount;
+            validOrderCount += dayValidOrderCount;
+            turnover += dayTurnover;
+            newUsers += dayNewUsers;
+        }
 
-        //查询概览数据
-        BusinessDataVO businessDataVO = workspaceService.getBusinessData(beginTime, endTime);
+        //概览数据
+        BusinessDataVO businessDataVO = buildBusinessData(totalOrderCount, validOrderCount, turnover, newUsers);
 
         //2. 通过POI将数据写入到excel文件中
         //输入流对象
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
-
-        //基于模板文件创建一个新的Excel
-        try {
-            XSSFWorkbook excel = new XSSFWorkbook(in);
+        try (InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx")) {
+            //基于模板文件创建一个新的Excel
+            XSSFWorkbook template = new XSSFWorkbook(in);
 
             //填充数据 -- 时间
             //获取sheet1
-            XSSFSheet sheet1 = excel.getSheet("Sheet1");
+            XSSFSheet sheet1 = template.getSheet("Sheet1");
 
             //获取第二行
             XSSFRow row = sheet1.getRow(1);
@@ -264,49 +300,216 @@ public class ReportServiceImpl implements ReportService {
 
             sheet1.getRow(4).getCell(4).setCellValue(businessDataVO.getUnitPrice());
 
-            //填充明细数据， 30天
-            for (int i = 0; i < 30; i++) {
-                LocalDate date = dateBegin.plusDays(i);
-                BusinessDataVO businessData = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.from(LocalDateTime.MIN)), LocalDateTime.of(date, LocalTime.from(LocalDateTime.MAX)));
+            //记下模板明细行的样式，然后删除模板中预留的明细行，明细改由SXSSF逐行追加
+            XSSFRow styleRow = sheet1.getRow(DETAIL_FIRST_ROW);
+            CellStyle[] detailStyles = new CellStyle[DETAIL_LAST_CELL + 1];
+            for (int i = 1; i <= DETAIL_LAST_CELL; i++) {
+                detailStyles[i] = styleRow.getCell(i).getCellStyle();
+            }
+            for (int i = sheet1.getLastRowNum(); i >= DETAIL_FIRST_ROW; i--) {
+                XSSFRow templateRow = sheet1.getRow(i);
+                if (templateRow != null) {
+                    sheet1.removeRow(templateRow);
+                }
+            }
 
-                XSSFRow row1 = sheet1.getRow(i + 7); //i = 0, 第1天就是第8行
+            SXSSFWorkbook excel = new SXSSFWorkbook(template, ROW_ACCESS_WINDOW_SIZE);
+            excel.setCompressTempFiles(true);
+            try {
+                //填充明细数据，每天一行
+                SXSSFSheet sheet = excel.getSheet("Sheet1");
+                for (int i = 0; i < dateList.size(); i++) {
+                    BusinessDataVO businessData = businessDataList.get(i);
+
+                    Row row1 = sheet.createRow(i + DETAIL_FIRST_ROW); //i = 0, 第1天就是第8行
+                    createCell(row1, 1, detailStyles).setCellValue(dateList.get(i).toString());
+                    createCell(row1, 2, detailStyles).setCellValue(businessData.getTurnover());
+                    createCell(row1, 3, detailStyles).setCellValue(businessData.getValidOrderCount());
+                    createCell(row1, 4, detailStyles).setCellValue(businessData.getOrderCompletionRate());
+                    createCell(row1, 5, detailStyles).setCellValue(businessData.getUnitPrice());
+                    createCell(row1, 6, detailStyles).setCellValue(businessData.getNewUsers());
+                }
+
+                //填充订单明细
+                if (withOrderDetail) {
+                    writeOrderSheet(excel, dateBegin, dateEnd);
+                }
+
+                //3. 通过输出流将excel文件下载到客户端浏览器
+                response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                //输出流对象
+                ServletOutputStream out = response.getOutputStream();
+                excel.write(out);
+                out.flush();
+            } finally {
+                //关闭资源，删除SXSSF写出的临时文件
+                excel.dispose();
+                excel.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
 
-                row1.getCell(1).setCellValue(date.toString());
-                row1.getCell(2).setCellValue(businessData.getTurnover());
-                row1.getCell(3).setCellValue(businessData.getValidOrderCount());
-                row1.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-                row1.getCell(5).setCellValue(businessData.getUnitPrice());
-                row1.getCell(6).setCellValue(businessData.getNewUsers());
+    }
 
-            }
+    /**
+     * 流式写出区间内的订单明细到新的sheet
+     * @param excel
+     * @param dateBegin
+     * @param dateEnd
+     */
+    private void writeOrderSheet(SXSSFWorkbook excel, LocalDate dateBegin, LocalDate dateEnd) {
+        SXSSFSheet sheet = excel.createSheet("订单明细");
+        String[] titles = {"订单号", "下单时间", "结账时间", "订单状态", "实收金额", "收货人", "手机号", "地址", "备注"};
+        Row titleRow = sheet.createRow(0);
+        for (int i = 0; i < titles.length; i++) {
+            titleRow.createCell(i).setCellValue(titles[i]);
+        }
 
-            //3. 通过输出流将excel文件下载到客户端浏览器
-            //输出流对象
-            ServletOutputStream out = response.getOutputStream();
-            excel.write(out);
+        LocalDateTime beginTime = LocalDateTime.of(dateBegin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(dateEnd, LocalTime.MAX);
+
+        //逐条读取订单并写出，超过窗口的行会被刷到临时文件
+        int[] rowIndex = {1};
+        orderMapper.streamByOrderTime(beginTime, endTime, context -> {
+            Orders orders = context.getResultObject();
+            Row row = sheet.createRow(rowIndex[0]++);
+            row.createCell(0).setCellValue(orders.getNumber());
+            row.createCell(1).setCellValue(formatTime(orders.getOrderTime()));
+            row.createCell(2).setCellValue(formatTime(orders.getCheckoutTime()));
+            row.createCell(3).setCellValue(getStatusName(orders.getStatus()));
+            row.createCell(4).setCellValue(orders.getAmount() == null ? 0.0 : orders.getAmount().doubleValue());
+            row.createCell(5).setCellValue(orders.getConsignee());
+            row.createCell(6).setCellValue(orders.getPhone());
+            row.createCell(7).setCellValue(orders.getAddress());
+            row.createCell(8).setCellValue(orders.getRemark());
+        });
+    }
 
-            //关闭资源
-            out.close();
-            excel.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * 根据订单数据计算营业数据
+     * @param totalOrderCount
+     * @param validOrderCount
+     * @param turnover
+     * @param newUsers
+     * @return
+     */
+    private BusinessDataVO buildBusinessData(int totalOrderCount, int validOrderCount, double turnover, int newUsers) {
+        Double unitPrice = 0.0;
+
+        Double orderCompletionRate = 0.0;
+        if(totalOrderCount != 0 && validOrderCount != 0){
+            //订单完成率
+            orderCompletionRate = (double) validOrderCount / totalOrderCount;
+            //平均客单价
+            unitPrice = turnover / validOrderCount;
         }
 
+        return BusinessDataVO.builder()
+                .turnover(turnover)
+                .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers(newUsers)
+                .build();
+    }
+
+    /**
+     * 创建使用模板样式的单元格
+     * @param row
+     * @param column
+     * @param styles
+     * @return
+     */
+    private Cell createCell(Row row, int column, CellStyle[] styles) {
+        Cell cell = row.createCell(column);
+        cell.setCellStyle(styles[column]);
+        return cell;
+    }
+
+    private String formatTime(LocalDateTime time) {
+        return time == null ? "" : time.format(TIME_FORMATTER);
+    }
+
+    private String getStatusName(Integer status) {
+        return status == null || status < 1 || status >= STATUS_NAMES.length ? "" : STATUS_NAMES[status];
     }
 
     /**
-     * 根据条件统计订单数量
+     * 获取begin到end范围内每天的日期
      * @param begin
      * @param end
-     * @param status
      * @return
      */
-    private Integer getOrderCount(LocalDateTime begin, LocalDateTime end, Integer status){
-        Map map = new HashMap<>();
-        map.put("begin", begin);
-        map.put("end", end);
-        map.put("status", status);
+    private List<LocalDate> getDateList(LocalDate begin, LocalDate end) {
+        List<LocalDate> dateList = new ArrayList<>();
+        dateList.add(begin);
+
+        while (begin.isBefore(end)){
+            begin = begin.plusDays(1);
+            dateList.add(begin);
+        }
+        return dateList;
+    }
+
+    /**
+     * 按天查询区间内的订单统计数据，已结束的日期读取每日汇总，key为日期
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, OrderDailyDTO> getOrderDailyMap(LocalDate begin, LocalDate end) {
+        Map<LocalDate, OrderDailyDTO> orderDailyMap = new HashMap<>();
+        LocalDate today = LocalDate.now();
+
+        //已结束的日期读取每日汇总数据
+        if (begin.isBefore(today)) {
+            LocalDate closedEnd = end.isBefore(today) ? end : today.minusDays(1);
+            for (BusinessDailyStats stats : businessDailyStatsService.listClosedDays(begin, closedEnd)) {
+                OrderDailyDTO orderDaily = OrderDailyDTO.builder()
+                        .orderDate(stats.getStatDate())
+                        .orderCount(stats.getTotalOrderCount())
+                        .validOrderCount(stats.getValidOrderCount())
+                        .turnover(stats.getTurnover().doubleValue())
+                        .build();
+                orderDailyMap.put(orderDaily.getOrderDate(), orderDaily);
+            }
+        }
 
-        return orderMapper.countByMap(map);
+        //今天及以后的日期查询订单表
+        if (!end.isBefore(today)) {
+            LocalDate openBegin = begin.isBefore(today) ? today : begin;
+            LocalDateTime beginTime = LocalDateTime.of(openBegin, LocalTime.MIN);//转换成当天0点0分0秒
+            LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);//当天24点
+
+            List<OrderDailyDTO> orderDailyList = orderMapper.sumDailyByRange(beginTime, endTime, Orders.COMPLETED);
+            orderDailyList.forEach(orderDaily -> orderDailyMap.put(orderDaily.getOrderDate(), orderDaily));
+        }
+        return orderDailyMap;
+    }
+
+    /**
+     * 按天查询区间内的新增用户数，已结束的日期读取每日汇总，key为日期
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, Integer> getNewUserMap(LocalDate begin, LocalDate end) {
+        Map<LocalDate, Integer> newUserMap = new HashMap<>();
+        LocalDate today = LocalDate.now();
+
+        if (begin.isBefore(today)) {
+            LocalDate closedEnd = end.isBefore(today) ? end : today.minusDays(1);
+            businessDailyStatsService.listClosedDays(begin, closedEnd)
+                    .forEach(stats -> newUserMap.put(stats.getStatDate(), stats.getNewUsers()));
+        }
+
+        //今天及以后 select date(create_time), count(id) from user where ... group by date(create_time)
+        if (!end.isBefore(today)) {
+            LocalDate openBegin = begin.isBefore(today) ? today : begin;
+            userMapper.countDailyByRange(LocalDateTime.of(openBegin, LocalTime.MIN), LocalDateTime.of(end, LocalTime.MAX))
+                    .forEach(userDaily -> newUserMap.put(userDaily.getCreateDate(), userDaily.getNewUsers()));
+        }
+        return newUserMap;
     }
 }
@@ -15,6 +15,7 @@ import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealDishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
+import com.sky.service.MenuSnapshotService;
 import com.sky.service.SetmealService;
 import com.sky.vo.DishItemVO;
 import com.sky.vo.SetmealVO;
@@ -40,6 +41,9 @@ public class SetmealServiceImpl implements SetmealService {
     @Autowired
     private DishMapper dishMapper;
 
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
+
     /**
      * 新增套餐，同时需要保存套餐和菜品的关联关系
      * @param setmealDTO
@@ -62,6 +66,8 @@ public class SetmealServiceImpl implements SetmealService {
 
         //2.保存套餐和菜品的关联关系到setmealDish表
         setmealDishMapper.insertBatch(setmealDishes);
+
+        menuSnapshotService.invalidate();
     }
 
     /**
@@ -99,6 +105,7 @@ public class SetmealServiceImpl implements SetmealService {
             setmealDishMapper.deleteBySetmealId(setmealId);
         });
 
+        menuSnapshotService.invalidate();
     }
 
     /**
@@ -148,6 +155,7 @@ public class SetmealServiceImpl implements SetmealService {
         //3、重新插入套餐和菜品的关联关系，操作setmeal_dish表，执行insert
         setmealDishMapper.insertBatch(setmealDishes);
 
+        menuSnapshotService.invalidate();
     }
 
     /**
@@ -175,6 +183,8 @@ public class SetmealServiceImpl implements SetmealService {
                 .status(status)
                 .build();
         setmealMapper.update(setmeal);
+
+        menuSnapshotService.invalidate();
     }
 
     /**
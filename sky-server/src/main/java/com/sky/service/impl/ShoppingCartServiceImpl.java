@@ -1,26 +1,80 @@
 package com.sky.service.impl;
 
+import com.alibaba.fastjson.JSON;
+import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
 import com.sky.entity.Dish;
 import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
+import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.ShoppingCartMapper;
 import com.sky.service.ShoppingCartService;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.enums.Enum;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 购物车数据保存在redis中，每个用户两个hash：
+ * cart:qty:{userId} 保存每个商品的数量，cart:item:{userId} 保存商品的名称、价格等信息
+ * 开启write-behind时，有改动的用户会被记录下来，由定时任务批量写回shopping_cart表
+ */
 @Service
 @Slf4j
 public class ShoppingCartServiceImpl implements ShoppingCartService {
+
+    //商品数量hash的key前缀
+    public static final String QTY_KEY_PREFIX = "cart:qty:";
+
+    //商品信息hash的key前缀
+    public static final String ITEM_KEY_PREFIX = "cart:item:";
+
+    //购物车已从数据库加载的标记key前缀
+    public static final String LOADED_KEY_PREFIX = "cart:loaded:";
+
+    //正在从数据库加载购物车的锁key前缀
+    public static final String LOADING_KEY_PREFIX = "cart:loading:";
+
+    //加载锁的过期时间（秒），加载的请求异常退出时锁会自动释放
+    private static final long LOADING_LOCK_SECONDS = 10;
+
+    //等待其他请求加载购物车时的轮询间隔（毫秒）
+    private static final long LOADING_WAIT_MILLIS = 20;
+
+    //有改动待写回数据库的用户集合
+    public static final String DIRTY_KEY = "cart:dirty";
+
+    //每次写回数据库的用户数
+    private static final int FLUSH_BATCH_SIZE = 100;
+
+    //原子修改商品数量，数量减到0时删除该商品，并刷新购物车的过期时间
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if tonumber(ARGV[2]) < 0 and redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then return 0 end\n" +
+            "local n = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "if n <= 0 then\n" +
+            "  redis.call('HDEL', KEYS[1], ARGV[1])\n" +
+            "  redis.call('HDEL', KEYS[2], ARGV[1])\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3])\n" +
+            "redis.call('EXPIRE', KEYS[2], ARGV[3])\n" +
+            "redis.call('EXPIRE', KEYS[3], ARGV[3])\n" +
+            "return n", Long.class);
+
     @Autowired
     private ShoppingCartMapper shoppingCartMapper;
 
@@ -29,48 +83,56 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     @Autowired
     private SetmealMapper setmealMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${sky.cart.write-behind:true}")
+    private boolean writeBehind;
+
+    @Value("${sky.cart.ttl-days:7}")
+    private long ttlDays;
+
     /**
      * 用户端添加购物车
      * @param shoppingCartDTO
      */
     public void addShoppingCart(ShoppingCartDTO shoppingCartDTO){
-        //查询购物车表里菜品是否已经存在
-        ShoppingCart shoppingCart = new ShoppingCart();
-        BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
         Long userId = BaseContext.getCurrentId();
-        shoppingCart.setUserId(userId);
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        //如果有的话就update数量字段
-        if (list != null && list.size() > 0){
-            ShoppingCart cart = list.get(0); //这里购物车表中要能查到的话肯定list就只有一条，所以索引取0就行
-            cart.setNumber(cart.getNumber() + 1);
-            shoppingCartMapper.updateNumberById(cart); //update shopping_cart set number = ? where id = ?
-        }else {
-            //没有的话执行insert操作,插入到购物车表中一条数据
+        ensureLoaded(userId);
+
+        String field = getField(shoppingCartDTO.getDishId(), shoppingCartDTO.getSetmealId(), shoppingCartDTO.getDishFlavor());
+        HashOperations<String, String, String> hashOperations = stringRedisTemplate.opsForHash();
+        //购物车中还没有该商品时，才需要查询菜品或套餐信息
+        if (!hashOperations.hasKey(ITEM_KEY_PREFIX + userId, field)) {
+            ShoppingCart shoppingCart = new ShoppingCart();
+            shoppingCart.setDishFlavor(shoppingCartDTO.getDishFlavor());
             //判断添加到购物车的是菜品还是套餐，dishid和setmealid只会有一个不为空
             Long dishId = shoppingCartDTO.getDishId();
-            Long setmealId = shoppingCartDTO.getSetmealId();
             if (dishId != null){
                 //本次添加到购物车的是菜品
                 Dish dish = dishMapper.getById(dishId);
+                shoppingCart.setDishId(dishId);
                 shoppingCart.setName(dish.getName());
                 shoppingCart.setImage(dish.getImage());
                 shoppingCart.setAmount(dish.getPrice());
-
             }else {
                 //本次添加到购物车的是套餐
-                Setmeal setmeal = setmealMapper.getById(setmealId);
+                Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
+                shoppingCart.setSetmealId(setmeal.getId());
                 shoppingCart.setName(setmeal.getName());
                 shoppingCart.setImage(setmeal.getImage());
                 shoppingCart.setAmount(setmeal.getPrice());
-
             }
-            shoppingCart.setNumber(1);//设置数量为1
             shoppingCart.setCreateTime(LocalDateTime.now());
-            shoppingCartMapper.insert(shoppingCart);
-            
+            hashOperations.putIfAbsent(ITEM_KEY_PREFIX + userId, field, JSON.toJSONString(shoppingCart));
         }
 
+        increment(userId, field, 1);
+        markDirty(userId);
     }
 
     /**
@@ -79,12 +141,8 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      */
     @Override
     public List<ShoppingCart> showShoppingCart() {
-        //获取当前微信用户id，然后取shopping_cart里面找有哪些购物车数据
-        Long currentId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = new ShoppingCart();
-        shoppingCart.setUserId(currentId);
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        return list;
+        //获取当前微信用户id，然后取购物车里面找有哪些购物车数据
+        return listByUserId(BaseContext.getCurrentId());
     }
 
     /**
@@ -92,9 +150,7 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      */
     @Override
     public void cleanShoppingCart() {
-        Long currentId = BaseContext.getCurrentId();
-        shoppingCartMapper.deleteByUserId(currentId);
-        return;
+        cleanByUserId(BaseContext.getCurrentId());
     }
 
     /**
@@ -103,25 +159,227 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      */
     @Override
     public void subShoppingCart(ShoppingCartDTO shoppingCartDTO) {
-        ShoppingCart shoppingCart = new ShoppingCart();
-        BeanUtils.copyProperties(shoppingCartDTO,shoppingCart);
-        //设置查询条件，查询当前登录用户的购物车数据
-        shoppingCart.setUserId(BaseContext.getCurrentId());
+        Long userId = BaseContext.getCurrentId();
+        ensureLoaded(userId);
 
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+        String field = getField(shoppingCartDTO.getDishId(), shoppingCartDTO.getSetmealId(), shoppingCartDTO.getDishFlavor());
+        //份数减1，减到0时脚本会删除该商品
+        increment(userId, field, -1);
+        markDirty(userId);
+    }
 
-        if(list != null && list.size() > 0){
-            shoppingCart = list.get(0);
+    /**
+     * 查询指定用户的购物车数据
+     * @param userId
+     * @return
+     */
+    public List<ShoppingCart> listByUserId(Long userId) {
+        ensureLoaded(userId);
+        return readCart(userId);
+    }
 
-            Integer number = shoppingCart.getNumber();
-            if(number == 1){
-                //当前商品在购物车中的份数为1，直接删除当前记录
-                shoppingCartMapper.deleteById(shoppingCart.getId());
-            }else {
-                //当前商品在购物车中的份数不为1，修改份数即可
-                shoppingCart.setNumber(shoppingCart.getNumber() - 1);
-                shoppingCartMapper.updateNumberById(shoppingCart);
+    /**
+     * 清空指定用户的购物车
+     * @param userId
+     */
+    public void cleanByUserId(Long userId) {
+        //保留加载标记，避免下次访问时又从数据库加载旧数据
+        stringRedisTemplate.delete(Arrays.asList(QTY_KEY_PREFIX + userId, ITEM_KEY_PREFIX + userId));
+        markDirty(userId);
+    }
+
+    /**
+     * 批量添加商品到指定用户的购物车，已存在的商品累加数量
+     * @param userId
+     * @param shoppingCartList
+     */
+    public void addBatch(Long userId, List<ShoppingCart> shoppingCartList) {
+        ensureLoaded(userId);
+        putAll(userId, shoppingCartList);
+        markDirty(userId);
+    }
+
+    /**
+     * 将有改动的购物车写回数据库
+     */
+    public void flushDirtyCarts() {
+        if (!writeBehind) {
+            return;
+        }
+
+        List<String> userIds;
+        do {
+            userIds = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, FLUSH_BATCH_SIZE);
+            if (userIds == null || userIds.isEmpty()) {
+                return;
+            }
+            for (String id : userIds) {
+                Long userId = Long.valueOf(id);
+                //加载标记已过期说明redis中的数据不完整，不能用来覆盖数据库
+                if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(LOADED_KEY_PREFIX + userId))) {
+                    continue;
+                }
+                try {
+                    List<ShoppingCart> shoppingCartList = readCart(userId);
+                    transactionTemplate.executeWithoutResult(status -> {
+                        shoppingCartMapper.deleteByUserId(userId);
+                        if (!shoppingCartList.isEmpty()) {
+                            shoppingCartMapper.insertBatch(shoppingCartList);
+                        }
+                    });
+                } catch (Exception e) {
+                    log.error("购物车写回数据库失败，userId：{}", userId, e);
+                    markDirty(userId);
+                }
+            }
+        } while (userIds.size() == FLUSH_BATCH_SIZE);
+    }
+
+    /**
+     * 首次访问时把数据库中的购物车数据加载到redis
+     * 拿到加载锁的请求负责加载，数据全部写入redis之后才设置加载标记，其他请求等待加载标记出现后再读写购物车；
+     * 加载失败时撤销已写入的数据并释放锁，下次访问重新加载
+     * 未开启write-behind时，加载后删除数据库中的数据，之后只以redis为准
+     * @param userId
+     */
+    private void ensureLoaded(Long userId) {
+        String loadedKey = LOADED_KEY_PREFIX + userId;
+        String loadingKey = LOADING_KEY_PREFIX + userId;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(LOADING_LOCK_SECONDS);
+        while (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(loadedKey))) {
+            if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(loadingKey, "1", LOADING_LOCK_SECONDS, TimeUnit.SECONDS))) {
+                try {
+                    load(userId);
+                } finally {
+                    stringRedisTemplate.delete(loadingKey);
+                }
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_LOAD_FAILED);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(LOADING_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_LOAD_FAILED);
+            }
+        }
+    }
+
+    /**
+     * 从数据库加载购物车，写入redis后设置加载标记
+     * @param userId
+     */
+    private void load(Long userId) {
+        String loadedKey = LOADED_KEY_PREFIX + userId;
+        //拿到锁之前其他请求可能已经加载完成
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(loadedKey))) {
+            return;
+        }
+        try {
+            ShoppingCart shoppingCart = new ShoppingCart();
+            shoppingCart.setUserId(userId);
+            List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+            if (list != null && !list.isEmpty()) {
+                putAll(userId, list);
             }
+            stringRedisTemplate.opsForValue().set(loadedKey, "1", ttlDays, TimeUnit.DAYS);
+        } catch (RuntimeException e) {
+            //putAll是累加写入，撤销写了一半的数据，避免重新加载时数量翻倍
+            stringRedisTemplate.delete(Arrays.asList(QTY_KEY_PREFIX + userId, ITEM_KEY_PREFIX + userId));
+            throw e;
+        }
+        if (!writeBehind) {
+            shoppingCartMapper.deleteByUserId(userId);
+        }
+    }
+
+    /**
+     * 把商品写入购物车，已存在的商品累加数量
+     * @param userId
+     * @param shoppingCartList
+     */
+    private void putAll(Long userId, List<ShoppingCart> shoppingCartList) {
+        HashOperations<String, String, String> hashOperations = stringRedisTemplate.opsForHash();
+        for (ShoppingCart cart : shoppingCartList) {
+            String field = getField(cart.getDishId(), cart.getSetmealId(), cart.getDishFlavor());
+            ShoppingCart item = ShoppingCart.builder()
+                    .name(cart.getName())
+                    .dishId(cart.getDishId())
+                    .setmealId(cart.getSetmealId())
+                    .dishFlavor(cart.getDishFlavor())
+                    .amount(cart.getAmount())
+                    .image(cart.getImage())
+                    .createTime(cart.getCreateTime() != null ? cart.getCreateTime() : LocalDateTime.now())
+                    .build();
+            hashOperations.putIfAbsent(ITEM_KEY_PREFIX + userId, field, JSON.toJSONString(item));
+            increment(userId, field, cart.getNumber());
+        }
+    }
+
+    /**
+     * 从redis读取购物车数据，按加入时间排序
+     * @param userId
+     * @return
+     */
+    private List<ShoppingCart> readCart(Long userId) {
+        HashOperations<String, String, String> hashOperations = stringRedisTemplate.opsForHash();
+        Map<String, String> numbers = hashOperations.entries(QTY_KEY_PREFIX + userId);
+        List<ShoppingCart> list = new ArrayList<>();
+        if (numbers.isEmpty()) {
+            return list;
+        }
+
+        List<String> fields = new ArrayList<>(numbers.keySet());
+        List<String> items = hashOperations.multiGet(ITEM_KEY_PREFIX + userId, fields);
+        for (int i = 0; i < fields.size(); i++) {
+            String item = items.get(i);
+            if (item == null) {
+                continue;
+            }
+            ShoppingCart shoppingCart = JSON.parseObject(item, ShoppingCart.class);
+            shoppingCart.setUserId(userId);
+            shoppingCart.setNumber(Integer.valueOf(numbers.get(fields.get(i))));
+            list.add(shoppingCart);
+        }
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime));
+        return list;
+    }
+
+    /**
+     * 修改商品数量
+     * @param userId
+     * @param field
+     * @param delta
+     */
+    private void increment(Long userId, String field, int delta) {
+        stringRedisTemplate.execute(INCREMENT_SCRIPT,
+                Arrays.asList(QTY_KEY_PREFIX + userId, ITEM_KEY_PREFIX + userId, LOADED_KEY_PREFIX + userId),
+                field, String.valueOf(delta), String.valueOf(TimeUnit.DAYS.toSeconds(ttlDays)));
+    }
+
+    /**
+     * 记录购物车有改动，等待写回数据库
+     * @param userId
+     */
+    private void markDirty(Long userId) {
+        if (writeBehind) {
+            stringRedisTemplate.opsForSet().add(DIRTY_KEY, userId.toString());
+        }
+    }
+
+    /**
+     * 购物车中商品的hash field，菜品按菜品id和口味区分，套餐按套餐id区分
+     * @param dishId
+     * @param setmealId
+     * @param dishFlavor
+     * @return
+     */
+    private String getField(Long dishId, Long setmealId, String dishFlavor) {
+        if (dishId != null) {
+            return "dish:" + dishId + ":" + (dishFlavor == null ? "" : dishFlavor);
         }
+        return "setmeal:" + setmealId;
     }
 }
@@ -1,11 +1,13 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.entity.BusinessDailyStats;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessDailyStatsService;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -14,9 +16,13 @@ import com.sky.vo.SetmealOverViewVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -31,6 +37,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private BusinessDailyStatsService businessDailyStatsService;
 
     /**
      * 根据时间段统计营业数据
@@ -47,6 +55,11 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
+        //时间段是已经结束的完整日期时，直接读取每日汇总数据，不再扫描订单表
+        if (isClosedDays(begin, end)) {
+            return getClosedDaysBusinessData(begin.toLocalDate(), end.toLocalDate());
+        }
+
         Map map = new HashMap();
         map.put("begin",begin);
         map.put("end",end);
@@ -84,6 +97,58 @@ public class WorkspaceServiceImpl implements WorkspaceService {
                 .build();
     }
 
+    /**
+     * 判断时间段是否由已经结束的完整日期组成
+     * @param begin
+     * @param end
+     * @return
+     */
+    private boolean isClosedDays(LocalDateTime begin, LocalDateTime end) {
+        return begin.toLocalTime().equals(LocalTime.MIN)
+                && end.toLocalTime().equals(LocalTime.MAX)
+                && end.toLocalDate().isBefore(LocalDate.now());
+    }
+
+    /**
+     * 根据每日汇总数据统计已结束日期的营业数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    private BusinessDataVO getClosedDaysBusinessData(LocalDate begin, LocalDate end) {
+        List<BusinessDailyStats> statsList = businessDailyStatsService.listClosedDays(begin, end);
+
+        int totalOrderCount = 0;
+        int validOrderCount = 0;
+        int newUsers = 0;
+        BigDecimal turnoverSum = BigDecimal.ZERO;
+        for (BusinessDailyStats stats : statsList) {
+            totalOrderCount += stats.getTotalOrderCount();
+            validOrderCount += stats.getValidOrderCount();
+            newUsers += stats.getNewUsers();
+            turnoverSum = turnoverSum.add(stats.getTurnover());
+        }
+        Double turnover = turnoverSum.doubleValue();
+
+        Double unitPrice = 0.0;
+
+        Double orderCompletionRate = 0.0;
+        if(totalOrderCount != 0 && validOrderCount != 0){
+            //订单完成率
+            orderCompletionRate = (double) validOrderCount / totalOrderCount;
+            //平均客单价
+            unitPrice = turnover / validOrderCount;
+        }
+
+        return BusinessDataVO.builder()
+                .turnover(turnover)
+                .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers(newUsers)
+                .build();
+    }
+
 
     /**
      * 查询订单管理数据
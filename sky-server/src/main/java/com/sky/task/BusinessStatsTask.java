@@ -0,0 +1,37 @@
+package com.sky.task;
+
+import com.sky.service.BusinessDailyStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 定时任务类，结算已结束日期的营业数据
+ */
+@Component
+@Slf4j
+public class BusinessStatsTask {
+
+    /**
+     * 每次结算时重新计算的天数，用于修正跨天的订单状态变化
+     */
+    private static final int REFRESH_DAYS = 2;
+
+    @Autowired
+    private BusinessDailyStatsService businessDailyStatsService;
+
+    /**
+     * 结算前几天的营业数据，写入每日汇总表
+     */
+    @Scheduled(cron = "0 5 0 * * ?") //每天凌晨0点5分触发一次
+    public void processClosedDays() {
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate begin = end.minusDays(REFRESH_DAYS - 1);
+        log.info("定时结算营业数据：{} 至 {}", begin, end);
+
+        businessDailyStatsService.refresh(begin, end);
+    }
+}
@@ -2,13 +2,21 @@ package com.sky.task;
 
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.service.BusinessDailyStatsService;
+import com.sky.service.OrderTimeoutService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * 定时任务类，定时处理订单状态
@@ -17,29 +25,50 @@ import java.util.List;
 @Slf4j
 public class OrderTask {
 
+    //每批处理的订单数
+    private static final int BATCH_SIZE = 500;
+
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private BusinessDailyStatsService businessDailyStatsService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderTimeoutService orderTimeoutService;
+
+    /**
+     * 从延时队列中取出到期的待支付订单并取消
+     */
+    @Scheduled(cron = "* * * * * ?") //每秒触发一次
+    public void processPayTimeoutOrder(){
+        orderTimeoutService.processDue();
+    }
+
     /**
      * 处理超时订单的方法, 设置状态为已取消
+     * 超时订单主要由延时队列取消，这里兜底处理登记失败的订单
      */
-    @Scheduled(cron = "0 * * * * ? ") //每分钟触发一次
+    @Scheduled(cron = "0 0/10 * * * ?") //每10分钟触发一次
     public void processTimeOutOrder(){
         log.info("定时处理超时订单：{}", LocalDateTime.now());
 
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-15);
+        //和延时队列使用同一个支付时限
+        LocalDateTime time = orderTimeoutService.getExpiredOrderTime();
 
-        //把超时的订单查上来
-        //select * from orders where status = ? and order_time < （当前时间 - 15min）
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time);
+        //update orders set status = 已取消 where status = 待付款 and order_time < （当前时间 - 支付时限），分批执行
+        Orders orders = Orders.builder()
+                .status(Orders.CANCELLED)
+                .cancelReason("订单超时，自动取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        int count = transitInBatches(Orders.PENDING_PAYMENT, time, orders, batch -> { });
 
-        if (ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList){
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时，自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
-            }
+        if (count > 0) {
+            log.info("超时取消订单{}个", count);
         }
     }
 
@@ -53,15 +82,61 @@ public class OrderTask {
 
         LocalDateTime time = LocalDateTime.now().plusMinutes(-60);
 
-        //把超时的订单查上来
-        //select * from orders where status = ? and order_time < （当前时间 - 60min）每天凌晨1点触发一次也就是一天前
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
+        //update orders set status = 已完成 where status = 派送中 and order_time < （当前时间 - 60min），分批执行
+        //每天凌晨1点触发一次也就是一天前
+        Orders orders = Orders.builder()
+                .status(Orders.COMPLETED)
+                .build();
+        TreeSet<LocalDate> orderDates = new TreeSet<>();
+        int count = transitInBatches(Orders.DELIVERY_IN_PROGRESS, time, orders,
+                batch -> batch.forEach(x -> orderDates.add(x.getOrderTime().toLocalDate())));
+
+        if (count > 0) {
+            log.info("自动完成订单{}个", count);
+        }
+
+        //订单日期已结算的营业数据需要重新汇总
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        NavigableSet<LocalDate> closedDates = orderDates.headSet(yesterday, true);
+        if (!closedDates.isEmpty()) {
+            businessDailyStatsService.refresh(closedDates.first(), closedDates.last());
+        }
+    }
 
-        if (ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList){
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+    /**
+     * 分批把指定状态且下单时间早于指定时间的订单改为新状态，每批在一个事务中先锁定再批量修改
+     * @param fromStatus 原状态
+     * @param orderTime
+     * @param orders 新状态及需要一起修改的字段
+     * @param batchHandler 每批修改成功后对该批订单的处理
+     * @return 修改的订单数
+     */
+    private int transitInBatches(Integer fromStatus, LocalDateTime orderTime, Orders orders,
+                                        Consumer<List<Orders>> batchHandler) {
+        int count = 0;
+        while (true) {
+            List<Orders> batch = transactionTemplate.execute(status -> {
+                List<Orders> ordersList = orderMapper.lockByStatusAndOrderTimeLT(fromStatus, orderTime, BATCH_SIZE);
+                if (!ordersList.isEmpty()) {
+                    List<Long> ids = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+                    orderMapper.updateStatusByIds(ids, fromStatus, orders);
+                }
+                return ordersList;
+            });
+
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            batchHandler.accept(batch);
+            count += batch.size();
+            if (log.isDebugEnabled()) {
+                log.debug("订单状态{}改为{}：{}", fromStatus, orders.getStatus(),
+                        batch.stream().map(Orders::getId).collect(Collectors.toList()));
+            }
+            if (batch.size() < BATCH_SIZE) {
+                break;
             }
         }
+        return count;
     }
 }
@@ -0,0 +1,26 @@
+package com.sky.task;
+
+import com.sky.service.ShoppingCartService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务类，把redis中有改动的购物车写回数据库
+ */
+@Component
+@Slf4j
+public class ShoppingCartTask {
+
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    /**
+     * 写回有改动的购物车
+     */
+    @Scheduled(cron = "0/10 * * * * ?") //每10秒触发一次
+    public void flushShoppingCart(){
+        shoppingCartService.flushDirtyCarts();
+    }
+}
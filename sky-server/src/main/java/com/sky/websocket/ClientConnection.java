@@ -0,0 +1,210 @@
+package com.sky.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个WebSocket客户端连接
+ * 消息先放入有界队列，再通过异步发送逐条发出，同一时刻每个会话最多只有一条消息在发送中，
+ * 调用方只负责入队，不会被慢客户端阻塞
+ */
+@Slf4j
+public class ClientConnection {
+
+    private final String sid;
+
+    private final Session session;
+
+    private final BlockingQueue<String> queue;
+
+    private final OverflowPolicy overflowPolicy;
+
+    //是否有消息正在发送
+    private final AtomicBoolean sending = new AtomicBoolean(false);
+
+    //当前消息开始发送的时间，没有消息在发送时为0
+    private volatile long sendStartTime;
+
+    //因队列已满被丢弃的消息数
+    private final LongAdder droppedCount = new LongAdder();
+
+    //已订阅的频道
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+
+    //最近一次收到客户端数据（消息或pong）的时间
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    public ClientConnection(String sid, Session session, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this.sid = sid;
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public String getSid() {
+        return sid;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public Set<String> getChannels() {
+        return channels;
+    }
+
+    public boolean isOpen() {
+        return session.isOpen();
+    }
+
+    /**
+     * 记录收到了客户端数据
+     */
+    public void touch() {
+        lastActiveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 超过指定时长没有收到客户端数据
+     * @param timeoutMillis
+     * @return
+     */
+    public boolean isIdle(long timeoutMillis) {
+        return System.currentTimeMillis() - lastActiveTime > timeoutMillis;
+    }
+
+    /**
+     * 发送协议层的ping帧，客户端浏览器会自动回复pong
+     * 和数据帧共用发送标记，有消息正在发送时跳过，ping发送完成后继续发送期间入队的消息
+     */
+    public void ping() {
+        if (!session.isOpen() || !sending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            session.getAsyncRemote().sendPing(ByteBuffer.allocate(0));
+        } catch (IllegalStateException e) {
+            //容器内部仍有帧在写出，本轮跳过，不影响连接
+            log.debug("客户端：{}正在发送数据，跳过本次ping", sid);
+        } catch (Exception e) {
+            log.warn("向客户端：{}发送ping失败", sid, e);
+            sending.set(false);
+            close(new CloseReason(CloseReason.CloseCodes.CLOSED_ABNORMALLY, "ping failed"));
+            return;
+        }
+        sending.set(false);
+        if (!queue.isEmpty()) {
+            drain();
+        }
+    }
+
+    /**
+     * 当前消息发送时间是否超过了指定时长
+     * @param timeoutMillis
+     * @return
+     */
+    public boolean isStalled(long timeoutMillis) {
+        long start = sendStartTime;
+        return start != 0 && System.currentTimeMillis() - start > timeoutMillis;
+    }
+
+    /**
+     * 消息入队并触发发送，不会阻塞调用方
+     * @param message
+     * @return 消息是否入队成功
+     */
+    public boolean send(String message) {
+        if (!session.isOpen()) {
+            return false;
+        }
+
+        if (!queue.offer(message)) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    queue.poll();
+                    droppedCount.increment();
+                    if (!queue.offer(message)) {
+                        droppedCount.increment();
+                        return false;
+                    }
+                    break;
+                case DROP_NEWEST:
+                    droppedCount.increment();
+                    log.warn("客户端：{}发送队列已满，丢弃消息", sid);
+                    return false;
+                default:
+                    log.warn("客户端：{}发送队列已满，关闭连接", sid);
+                    close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "send queue full"));
+                    return false;
+            }
+        }
+
+        drain();
+        return true;
+    }
+
+    /**
+     * 关闭连接并丢弃未发送的消息
+     * @param closeReason
+     */
+    public void close(CloseReason closeReason) {
+        queue.clear();
+        try {
+            if (session.isOpen()) {
+                session.close(closeReason);
+            }
+        } catch (Exception e) {
+            log.warn("关闭客户端：{}连接失败", sid, e);
+        }
+    }
+
+    /**
+     * 没有消息在发送时，取出队首消息异步发送，发送完成后在回调中继续发送下一条
+     */
+    private void drain() {
+        while (sending.compareAndSet(false, true)) {
+            String message = queue.poll();
+            if (message == null) {
+                sending.set(false);
+                //释放标记后可能有新消息入队，需要再检查一次
+                if (queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+
+            sendStartTime = System.currentTimeMillis();
+            try {
+                session.getAsyncRemote().sendText(message, result -> {
+                    sendStartTime = 0;
+                    sending.set(false);
+                    if (!result.isOK()) {
+                        log.warn("向客户端：{}发送消息失败", sid, result.getException());
+                        close(new CloseReason(CloseReason.CloseCodes.CLOSED_ABNORMALLY, "send failed"));
+                        return;
+                    }
+                    drain();
+                });
+            } catch (Exception e) {
+                sendStartTime = 0;
+                sending.set(false);
+                log.warn("向客户端：{}发送消息失败", sid, e);
+                close(new CloseReason(CloseReason.CloseCodes.CLOSED_ABNORMALLY, "send failed"));
+            }
+            return;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.sky.websocket;
+
+/**
+ * 会话发送队列已满时的处理策略
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 丢弃队列中最早的消息，保留最新消息
+     */
+    DROP_OLDEST,
+
+    /**
+     * 丢弃本次要发送的消息
+     */
+    DROP_NEWEST,
+
+    /**
+     * 关闭会话，由客户端重连
+     */
+    CLOSE
+}
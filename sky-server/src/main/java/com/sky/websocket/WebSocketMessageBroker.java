@@ -0,0 +1,169 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket集群消息转发
+ * 业务消息先发布到redis频道，每个节点（包括发布者自己）收到后推送给本节点上订阅了对应频道的连接，
+ * 这样无论管理端连接在哪个节点都能收到消息
+ * 每条消息带有唯一id用于去重，并带有按订单递增的序号，同一订单的消息按发布顺序推送
+ */
+@Component
+@Slf4j
+public class WebSocketMessageBroker implements MessageListener {
+
+    //集群消息使用的redis频道
+    public static final String TOPIC = "sky:ws:events";
+
+    //订单消息序号key前缀
+    public static final String SEQ_KEY_PREFIX = "ws:seq:";
+
+    //原子地生成订单消息序号并发布消息，保证同一订单的消息在redis中的发布顺序与序号一致
+    private static final DefaultRedisScript<Long> PUBLISH_SCRIPT = new DefaultRedisScript<>(
+            "local seq = redis.call('INCR', KEYS[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3])\n" +
+            "redis.call('PUBLISH', ARGV[1], seq .. '|' .. ARGV[2])\n" +
+            "return seq", Long.class);
+
+    //订单消息序号的保留时间，单位秒
+    private static final long SEQ_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    //不属于任何订单的消息使用的序号
+    private static final String GLOBAL_SEQ = "global";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private WebSocketServer webSocketServer;
+
+    @Value("${sky.websocket.cluster-enabled:true}")
+    private boolean clusterEnabled;
+
+    //当前节点标识
+    private final String nodeId = UUID.randomUUID().toString();
+
+    //最近处理过的消息id，用于去重
+    private final Cache<String, Boolean> deliveredIds = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    //每个订单最近推送的消息序号，序号不大于该值的消息是重复或过期的消息
+    private final Cache<String, Long> lastSeqs = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    @PostConstruct
+    public void init() {
+        if (clusterEnabled) {
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(TOPIC));
+            log.info("WebSocket集群消息转发已启用，节点：{}", nodeId);
+        }
+    }
+
+    /**
+     * 向订阅了默认店铺频道的所有节点上的客户端发送订单消息
+     * @param orderId
+     * @param message
+     */
+    public void sendToShop(Long orderId, String message) {
+        publish(WebSocketServer.shopChannel(webSocketServer.getDefaultShopId()), orderId, message);
+    }
+
+    /**
+     * 向订阅了指定频道的所有节点上的客户端发送消息
+     * @param channel
+     * @param orderId 消息所属订单，用于保证同一订单消息的顺序，可以为null
+     * @param message
+     */
+    public void publish(String channel, Long orderId, String message) {
+        if (!clusterEnabled) {
+            webSocketServer.publish(channel, message);
+            return;
+        }
+
+        JSONObject envelope = new JSONObject();
+        envelope.put("id", UUID.randomUUID().toString());
+        envelope.put("node", nodeId);
+        envelope.put("channel", channel);
+        envelope.put("orderId", orderId);
+        envelope.put("message", message);
+
+        String seqKey = SEQ_KEY_PREFIX + (orderId == null ? GLOBAL_SEQ : orderId.toString());
+        try {
+            stringRedisTemplate.execute(PUBLISH_SCRIPT, Collections.singletonList(seqKey),
+                    TOPIC, envelope.toJSONString(), String.valueOf(SEQ_TTL_SECONDS));
+        } catch (Exception e) {
+            //redis不可用时至少推送给本节点的客户端
+            log.error("发布WebSocket集群消息失败，只推送到本节点", e);
+            webSocketServer.publish(channel, message);
+        }
+    }
+
+    /**
+     * 收到redis频道的消息，推送给本节点的客户端
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0) {
+            log.warn("忽略格式错误的WebSocket集群消息：{}", body);
+            return;
+        }
+
+        long seq;
+        JSONObject envelope;
+        try {
+            seq = Long.parseLong(body.substring(0, separator));
+            envelope = JSON.parseObject(body.substring(separator + 1));
+        } catch (Exception e) {
+            log.warn("忽略格式错误的WebSocket集群消息：{}", body);
+            return;
+        }
+
+        //按消息id去重
+        String id = envelope.getString("id");
+        if (deliveredIds.asMap().putIfAbsent(id, Boolean.TRUE) != null) {
+            return;
+        }
+
+        //同一订单只推送序号递增的消息
+        Long orderId = envelope.getLong("orderId");
+        String seqKey = orderId == null ? GLOBAL_SEQ : orderId.toString();
+        Long lastSeq = lastSeqs.getIfPresent(seqKey);
+        if (lastSeq != null && seq <= lastSeq) {
+            log.debug("忽略过期的WebSocket集群消息，订单：{}，序号：{}", seqKey, seq);
+            return;
+        }
+        lastSeqs.put(seqKey, seq);
+
+        webSocketServer.publish(envelope.getString("channel"), envelope.getString("message"));
+    }
+}
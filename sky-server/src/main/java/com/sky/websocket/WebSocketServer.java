@@ -1,33 +1,165 @@
 package com.sky.websocket;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+
+import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
+import javax.websocket.PongMessage;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * WebSocket服务
+ * 客户端连接/ws/{sid}时可以通过shopId、role、employeeId参数订阅频道，也可以在连接后发送
+ * {"subscribe":["shop:1"]}或{"unsubscribe":["shop:1"]}调整订阅，消息只推送给订阅了对应频道的客户端
  */
 @Component
 @ServerEndpoint("/ws/{sid}")
+@Slf4j
 public class WebSocketServer {
 
-    //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    //推送耗时指标（消息放入各会话发送队列的耗时），按频道类型统计
+    public static final String BROADCAST_METRIC = "websocket.broadcast";
+
+    //店铺频道前缀
+    public static final String SHOP_CHANNEL_PREFIX = "shop:";
+
+    //角色频道前缀
+    public static final String ROLE_CHANNEL_PREFIX = "role:";
+
+    //员工频道前缀
+    public static final String EMPLOYEE_CHANNEL_PREFIX = "employee:";
+
+    //会话属性中保存连接对象的key
+    private static final String CONNECTION_ATTRIBUTE = "connection";
+
+    //Tomcat中ping等控制帧是阻塞写出的，用该会话属性限制阻塞时长，避免慢客户端卡住定时任务线程
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    //每个连接最多订阅的频道数
+    private static final int MAX_CHANNELS_PER_CONNECTION = 16;
+
+    //存放客户端连接，容器会为每个连接创建一个端点实例，所以使用静态变量共享
+    private static final Map<String, ClientConnection> connectionMap = new ConcurrentHashMap<>();
+
+    //频道和订阅该频道的连接
+    private static final Map<String, Set<ClientConnection>> channelMap = new ConcurrentHashMap<>();
+
+    //未指定订阅时默认订阅的店铺
+    private static volatile Long defaultShopId = 1L;
+
+    //超过该时长没有收到客户端的pong或消息，认为连接已失效，单位毫秒
+    private static volatile long idleTimeout = 90000;
+
+    //每个会话发送队列的容量
+    private static volatile int queueCapacity = 256;
+
+    //发送队列已满时的处理策略
+    private static volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    //单条消息发送超时时间，单位毫秒
+    private static volatile long sendTimeout = 10000;
+
+    @Value("${sky.websocket.queue-capacity:256}")
+    public void setQueueCapacity(int queueCapacity) {
+        WebSocketServer.queueCapacity = queueCapacity;
+    }
+
+    @Value("${sky.websocket.overflow-policy:DROP_OLDEST}")
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        WebSocketServer.overflowPolicy = overflowPolicy;
+    }
+
+    @Value("${sky.websocket.send-timeout:10000}")
+    public void setSendTimeout(long sendTimeout) {
+        WebSocketServer.sendTimeout = sendTimeout;
+    }
+
+    @Value("${sky.websocket.idle-timeout:90000}")
+    public void setIdleTimeout(long idleTimeout) {
+        WebSocketServer.idleTimeout = idleTimeout;
+    }
+
+    @Value("${sky.shop.id:1}")
+    public void setDefaultShopId(Long defaultShopId) {
+        WebSocketServer.defaultShopId = defaultShopId;
+    }
+
+    public Long getDefaultShopId() {
+        return defaultShopId;
+    }
+
+    /**
+     * 店铺频道名称
+     * @param shopId
+     * @return
+     */
+    public static String shopChannel(Long shopId) {
+        return SHOP_CHANNEL_PREFIX + shopId;
+    }
+
+    /**
+     * 角色频道名称
+     * @param role
+     * @return
+     */
+    public static String roleChannel(String role) {
+        return ROLE_CHANNEL_PREFIX + role;
+    }
+
+    /**
+     * 员工频道名称
+     * @param employeeId
+     * @return
+     */
+    public static String employeeChannel(Long employeeId) {
+        return EMPLOYEE_CHANNEL_PREFIX + employeeId;
+    }
 
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+        log.info("客户端：{}建立连接", sid);
+        session.getAsyncRemote().setSendTimeout(sendTimeout);
+        session.getUserProperties().put(BLOCKING_SEND_TIMEOUT, Math.min(sendTimeout, 5000L));
+        ClientConnection connection = new ClientConnection(sid, session, queueCapacity, overflowPolicy);
+        session.getUserProperties().put(CONNECTION_ATTRIBUTE, connection);
+
+        //根据连接参数订阅频道，没有指定时订阅默认店铺，兼容原来的管理端
+        Map<String, List<String>> params = session.getRequestParameterMap();
+        subscribe(connection, params.get("shopId"), SHOP_CHANNEL_PREFIX);
+        subscribe(connection, params.get("role"), ROLE_CHANNEL_PREFIX);
+        subscribe(connection, params.get("employeeId"), EMPLOYEE_CHANNEL_PREFIX);
+        if (connection.getChannels().isEmpty()) {
+            subscribe(connection, shopChannel(defaultShopId));
+        }
+
+        ClientConnection old = connectionMap.put(sid, connection);
+        if (old != null && old.getSession() != session) {
+            //同一个sid重复连接，关闭旧连接
+            unsubscribeAll(old);
+            old.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "replaced"));
+        }
     }
 
     /**
@@ -36,8 +168,47 @@ public class WebSocketServer {
      * @param message 客户端发送过来的消息
      */
     @OnMessage
-    public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+    public void onMessage(Session session, String message, @PathParam("sid") String sid) {
+        ClientConnection connection = getConnection(session);
+        if (connection == null) {
+            return;
+        }
+        connection.touch();
+
+        JSONObject jsonObject;
+        try {
+            jsonObject = JSON.parseObject(message);
+        } catch (Exception e) {
+            log.info("收到来自客户端：{}的信息：{}", sid, message);
+            return;
+        }
+        if (jsonObject == null) {
+            return;
+        }
+
+        JSONArray subscribe = jsonObject.getJSONArray("subscribe");
+        if (subscribe != null) {
+            for (int i = 0; i < subscribe.size(); i++) {
+                subscribe(connection, subscribe.getString(i));
+            }
+        }
+        JSONArray unsubscribe = jsonObject.getJSONArray("unsubscribe");
+        if (unsubscribe != null) {
+            for (int i = 0; i < unsubscribe.size(); i++) {
+                unsubscribe(connection, unsubscribe.getString(i));
+            }
+        }
+    }
+
+    /**
+     * 收到客户端pong帧
+     */
+    @OnMessage
+    public void onPong(Session session, PongMessage pongMessage) {
+        ClientConnection connection = getConnection(session);
+        if (connection != null) {
+            connection.touch();
+        }
     }
 
     /**
@@ -46,26 +217,200 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开：{}", sid);
+        remove(sid, session);
+    }
+
+    /**
+     * 连接出错调用的方法
+     *
+     * @param sid
+     */
+    @OnError
+    public void onError(Session session, Throwable throwable, @PathParam("sid") String sid) {
+        log.warn("客户端：{}连接异常", sid, throwable);
+        remove(sid, session);
     }
 
     /**
-     * 群发
+     * 群发，消息放入各会话的发送队列后立即返回
      *
      * @param message
      */
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+        long start = System.nanoTime();
+        for (ClientConnection connection : connectionMap.values()) {
+            connection.send(message);
+        }
+        recordBroadcast("all", start);
+    }
+
+    /**
+     * 向订阅了指定频道的客户端发送消息
+     *
+     * @param channel
+     * @param message
+     */
+    public void publish(String channel, String message) {
+        long start = System.nanoTime();
+        Set<ClientConnection> connections = channelMap.get(channel);
+        if (connections != null) {
+            for (ClientConnection connection : connections) {
+                connection.send(message);
+            }
+        }
+        //只按频道类型统计，避免每个店铺、员工产生一个指标
+        int index = channel.indexOf(':');
+        recordBroadcast(index > 0 ? channel.substring(0, index) : channel, start);
+    }
+
+    /**
+     * 向默认店铺的客户端发送消息
+     *
+     * @param message
+     */
+    public void sendToShop(String message) {
+        publish(shopChannel(defaultShopId), message);
+    }
+
+    /**
+     * 当前有订阅者的频道数
+     * @return
+     */
+    public static int getChannelCount() {
+        return channelMap.size();
+    }
+
+    /**
+     * 向所有连接发送ping帧，客户端通过pong帧证明连接仍然可用
+     */
+    public void ping() {
+        for (ClientConnection connection : connectionMap.values()) {
+            connection.ping();
+        }
+    }
+
+    /**
+     * 清理已断开或发送卡住的连接
+     */
+    public void reap() {
+        Iterator<ClientConnection> iterator = connectionMap.values().iterator();
+        while (iterator.hasNext()) {
+            ClientConnection connection = iterator.next();
+            if (!connection.isOpen()) {
+                unsubscribeAll(connection);
+                iterator.remove();
+            } else if (connection.isStalled(sendTimeout * 2)) {
+                log.warn("客户端：{}发送超时，关闭连接", connection.getSid());
+                connection.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "send stalled"));
+                unsubscribeAll(connection);
+                iterator.remove();
+            } else if (connection.isIdle(idleTimeout)) {
+                log.warn("客户端：{}长时间没有响应，关闭连接", connection.getSid());
+                connection.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "idle timeout"));
+                unsubscribeAll(connection);
+                iterator.remove();
             }
         }
     }
 
+    /**
+     * 当前连接数
+     * @return
+     */
+    public static int getConnectionCount() {
+        return connectionMap.size();
+    }
+
+    /**
+     * 移除连接，只移除属于该会话的连接，避免误删同一个sid重连后的新连接
+     * @param sid
+     * @param session
+     */
+    private void remove(String sid, Session session) {
+        ClientConnection connection = getConnection(session);
+        if (connection != null) {
+            unsubscribeAll(connection);
+        }
+        connectionMap.computeIfPresent(sid, (key, value) -> value.getSession() == session ? null : value);
+    }
+
+    private ClientConnection getConnection(Session session) {
+        return (ClientConnection) session.getUserProperties().get(CONNECTION_ATTRIBUTE);
+    }
+
+    /**
+     * 按连接参数订阅频道
+     * @param connection
+     * @param values
+     * @param prefix
+     */
+    private void subscribe(ClientConnection connection, Collection<String> values, String prefix) {
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            subscribe(connection, prefix + value);
+        }
+    }
+
+    /**
+     * 订阅频道，只允许订阅店铺、角色、员工频道
+     * @param connection
+     * @param channel
+     */
+    private void subscribe(ClientConnection connection, String channel) {
+        if (channel == null
+                || !(channel.startsWith(SHOP_CHANNEL_PREFIX) || channel.startsWith(ROLE_CHANNEL_PREFIX) || channel.startsWith(EMPLOYEE_CHANNEL_PREFIX))) {
+            return;
+        }
+        if (connection.getChannels().size() >= MAX_CHANNELS_PER_CONNECTION && !connection.getChannels().contains(channel)) {
+            log.warn("客户端：{}订阅的频道过多，忽略：{}", connection.getSid(), channel);
+            return;
+        }
+        connection.getChannels().add(channel);
+        //在compute中加入，避免与最后一个订阅者取消订阅同时发生时加入到已被移除的集合中
+        channelMap.compute(channel, (key, connections) -> {
+            if (connections == null) {
+                connections = ConcurrentHashMap.newKeySet();
+            }
+            connections.add(connection);
+            return connections;
+        });
+    }
+
+    /**
+     * 取消订阅频道，频道没有订阅者时删除
+     * @param connection
+     * @param channel
+     */
+    private void unsubscribe(ClientConnection connection, String channel) {
+        if (channel == null) {
+            return;
+        }
+        connection.getChannels().remove(channel);
+        channelMap.computeIfPresent(channel, (key, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    private void unsubscribeAll(ClientConnection connection) {
+        for (String channel : connection.getChannels()) {
+            unsubscribe(connection, channel);
+        }
+    }
+
+    /**
+     * 记录一次推送的耗时
+     * @param channelType
+     * @param start
+     */
+    private static void recordBroadcast(String channelType, long start) {
+        Timer.builder(BROADCAST_METRIC)
+                .tag("channel", channelType)
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
 }
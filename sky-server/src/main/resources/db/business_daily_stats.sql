@@ -0,0 +1,11 @@
+-- 每日营业数据汇总表，已结束日期的营业数据从这里读取，避免反复扫描orders和user表
+create table if not exists business_daily_stats
+(
+    stat_date         date           not null comment '统计日期',
+    total_order_count int            not null default 0 comment '订单总数',
+    valid_order_count int            not null default 0 comment '有效订单数（已完成）',
+    turnover          decimal(12, 2) not null default 0 comment '营业额（已完成订单金额）',
+    new_users         int            not null default 0 comment '新增用户数',
+    update_time       datetime       null comment '更新时间',
+    primary key (stat_date)
+) comment '每日营业数据汇总';
@@ -0,0 +1,134 @@
+package com.sky.cache;
+
+import com.sky.entity.DishFlavor;
+import com.sky.result.Result;
+import com.sky.vo.DishVO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 缓存值的序列化格式切换后，已有的key仍能读取，新格式写入的值能还原为原来的类型
+ */
+class RedisValueSerializerTest {
+
+    /**
+     * 切换前通过JDK序列化写入的值，读取时识别数据头后按JDK格式还原
+     */
+    @ParameterizedTest
+    @EnumSource(RedisValueSerializer.Format.class)
+    void readsValuesWrittenByJdkSerializer(RedisValueSerializer.Format format) {
+        RedisValueSerializer serializer = new RedisValueSerializer(format);
+        JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+        CacheEntry entry = new CacheEntry(Result.success(dishVOList()), 1_700_000_000_000L, 12);
+        assertEquals(entry, serializer.deserialize(jdkSerializer.serialize(entry)));
+        assertEquals(1, serializer.deserialize(jdkSerializer.serialize(1)));
+    }
+
+    /**
+     * 用户端菜品缓存的值：CacheEntry包装的Result<List<DishVO>>
+     */
+    @ParameterizedTest
+    @EnumSource(RedisValueSerializer.Format.class)
+    void roundTripsCachedDishes(RedisValueSerializer.Format format) {
+        RedisValueSerializer serializer = new RedisValueSerializer(format);
+
+        CacheEntry entry = new CacheEntry(Result.success(dishVOList()), 1_700_000_000_000L, 12);
+        Object value = serializer.deserialize(serializer.serialize(entry));
+
+        assertEquals(entry, value);
+        Result<?> result = (Result<?>) ((CacheEntry) value).getValue();
+        DishVO dishVO = (DishVO) ((List<?>) result.getData()).get(0);
+        assertInstanceOf(Long.class, dishVO.getId());
+        assertInstanceOf(BigDecimal.class, dishVO.getPrice());
+    }
+
+    /**
+     * 缓存的空值：CacheEntry中的空值和Spring Cache的空值占位对象
+     */
+    @ParameterizedTest
+    @EnumSource(RedisValueSerializer.Format.class)
+    void roundTripsNullValues(RedisValueSerializer.Format format) {
+        RedisValueSerializer serializer = new RedisValueSerializer(format);
+
+        CacheEntry entry = new CacheEntry(null, 1_700_000_000_000L, 3);
+        assertEquals(entry, serializer.deserialize(serializer.serialize(entry)));
+        assertSame(NullValue.INSTANCE, serializer.deserialize(serializer.serialize(NullValue.INSTANCE)));
+        assertArrayEquals(new byte[0], serializer.serialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    /**
+     * 店铺营业状态以Integer写入，读取后仍为Integer
+     */
+    @ParameterizedTest
+    @EnumSource(RedisValueSerializer.Format.class)
+    void readsShopStatusAsInteger(RedisValueSerializer.Format format) {
+        RedisValueSerializer serializer = new RedisValueSerializer(format);
+
+        Object status = serializer.deserialize(serializer.serialize(1));
+        assertInstanceOf(Integer.class, status);
+        assertEquals(1, status);
+    }
+
+    /**
+     * NON_FINAL类型信息不记录final的标量类型，顶层的Long在int范围内时读取后为Integer，
+     * 直接以Long缓存的值读取时不能强转为Long
+     */
+    @ParameterizedTest
+    @EnumSource(RedisValueSerializer.Format.class)
+    void topLevelLongWithinIntRangeComesBackAsInteger(RedisValueSerializer.Format format) {
+        RedisValueSerializer serializer = new RedisValueSerializer(format);
+
+        assertEquals(Integer.valueOf(5), serializer.deserialize(serializer.serialize(5L)));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), serializer.deserialize(serializer.serialize(Long.MAX_VALUE)));
+    }
+
+    /**
+     * 在json和Smile之间切换时，另一种格式写入的值按数据头识别后仍能读取
+     */
+    @Test
+    void readsValuesWrittenInTheOtherFormat() {
+        RedisValueSerializer json = new RedisValueSerializer(RedisValueSerializer.Format.JSON);
+        RedisValueSerializer smile = new RedisValueSerializer(RedisValueSerializer.Format.SMILE);
+
+        CacheEntry entry = new CacheEntry(Result.success(dishVOList()), 1_700_000_000_000L, 12);
+        assertEquals(entry, smile.deserialize(json.serialize(entry)));
+        assertEquals(entry, json.deserialize(smile.serialize(entry)));
+    }
+
+    private static List<DishVO> dishVOList() {
+        List<DishVO> list = new ArrayList<>();
+        for (long i = 1; i <= 3; i++) {
+            list.add(DishVO.builder()
+                    .id(i)
+                    .name("菜品" + i)
+                    .categoryId(10L)
+                    .price(new BigDecimal("18.50"))
+                    .image("https://example.com/dish" + i + ".png")
+                    .description("描述" + i)
+                    .status(1)
+                    //json中的时间只保留到分钟
+                    .updateTime(LocalDateTime.of(2024, 3, 1, 12, 30))
+                    .categoryName("热菜")
+                    .flavors(Collections.singletonList(new DishFlavor(i, i, "辣度", "[\"不辣\",\"微辣\"]")))
+                    .build());
+        }
+        return list;
+    }
+}
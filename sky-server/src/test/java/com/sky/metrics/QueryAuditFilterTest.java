@@ -0,0 +1,124 @@
+package com.sky.metrics;
+
+import com.sky.config.SqlAuditConfiguration;
+import com.sky.entity.DishFlavor;
+import com.sky.mapper.DishFlavorMapper;
+import com.sky.properties.SqlAuditProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.annotation.MapperScan;
+import org.mybatis.spring.boot.autoconfigure.MybatisAutoConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 测试环境开启fail-on-violation后，逐行查询的接口直接失败，批量查询的接口正常返回
+ */
+@SpringBootTest(classes = QueryAuditFilterTest.TestConfiguration.class)
+@ActiveProfiles("test")
+class QueryAuditFilterTest {
+
+    @Autowired
+    private DishFlavorMapper dishFlavorMapper;
+
+    @Autowired
+    private SqlAuditProperties sqlAuditProperties;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new FlavorController(dishFlavorMapper))
+                .addFilters(new QueryAuditFilter(sqlAuditProperties))
+                .build();
+    }
+
+    @Test
+    void testProfileFailsOnViolation() {
+        assertTrue(sqlAuditProperties.isFailOnViolation());
+    }
+
+    /**
+     * 原来的写法：逐个菜品查询口味，同一条sql执行次数达到阈值
+     */
+    @Test
+    void perRowLoopExceedsBudget() {
+        QueryBudgetExceededException e = assertThrows(QueryBudgetExceededException.class,
+                () -> mockMvc.perform(get("/admin/flavors/loop").param("count", "12")));
+        assertTrue(e.getMessage().contains("com.sky.mapper.DishFlavorMapper.getByDishId x12"), e.getMessage());
+    }
+
+    /**
+     * 批量查询只执行一条sql
+     */
+    @Test
+    void batchedQueryStaysWithinBudget() throws Exception {
+        mockMvc.perform(get("/admin/flavors/batch").param("count", "12"))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * 没有超过阈值的少量查询不受影响
+     */
+    @Test
+    void shortLoopStaysWithinBudget() throws Exception {
+        mockMvc.perform(get("/admin/flavors/loop").param("count", String.valueOf(sqlAuditProperties.getRepeatThreshold() - 1)))
+                .andExpect(status().isOk());
+    }
+
+    @RestController
+    static class FlavorController {
+
+        private final DishFlavorMapper dishFlavorMapper;
+
+        FlavorController(DishFlavorMapper dishFlavorMapper) {
+            this.dishFlavorMapper = dishFlavorMapper;
+        }
+
+        @GetMapping("/admin/flavors/loop")
+        public int loop(@RequestParam int count) {
+            List<DishFlavor> flavors = new ArrayList<>();
+            for (long dishId = 1; dishId <= count; dishId++) {
+                flavors.addAll(dishFlavorMapper.getByDishId(dishId));
+            }
+            return flavors.size();
+        }
+
+        @GetMapping("/admin/flavors/batch")
+        public int batch(@RequestParam int count) {
+            List<Long> dishIds = new ArrayList<>();
+            for (long dishId = 1; dishId <= count; dishId++) {
+                dishIds.add(dishId);
+            }
+            return dishFlavorMapper.getByDishIds(dishIds).size();
+        }
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, SqlInitializationAutoConfiguration.class, MybatisAutoConfiguration.class})
+    @Import(SqlAuditConfiguration.class)
+    @EnableConfigurationProperties(SqlAuditProperties.class)
+    @MapperScan(basePackageClasses = DishFlavorMapper.class)
+    static class TestConfiguration {
+    }
+}
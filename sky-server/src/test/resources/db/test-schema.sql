@@ -0,0 +1,10 @@
+create table if not exists dish_flavor
+(
+    id      bigint auto_increment primary key,
+    dish_id bigint not null,
+    name    varchar(32),
+    value   varchar(255)
+);
+
+insert into dish_flavor (dish_id, name, value)
+select x, '辣度', '["不辣","微辣","中辣","重辣"]' from system_range(1, 20);